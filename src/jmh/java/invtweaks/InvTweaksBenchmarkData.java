@@ -0,0 +1,122 @@
+package invtweaks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import invtweaks.api.IItemTreeCategory;
+import invtweaks.api.IItemTreeItem;
+
+/**
+ * Inputs shared by the benchmarks: the configuration is loaded from the default rules and tree bundled with the mod,
+ * and stacks are picked randomly among the items of the tree that exist in vanilla.
+ */
+public class InvTweaksBenchmarkData {
+
+    private static final Enchantment[] ENCHANTMENTS = { Enchantment.sharpness, Enchantment.efficiency,
+            Enchantment.unbreaking, Enchantment.fortune };
+
+    private static InvTweaksConfig config = null;
+    private static List<IItemTreeItem> treeItems = null;
+
+    public static synchronized InvTweaksConfig getConfig() throws Exception {
+        if (config == null) {
+            Bootstrap.func_151354_b(); // Registers vanilla blocks and items
+            InvTweaksConst.MINECRAFT_CONFIG_DIR.mkdirs();
+
+            File rulesFile = extractResource("DefaultConfig.dat", InvTweaksConst.CONFIG_RULES_FILE);
+            File treeFile = extractResource("ItemTree.xml", InvTweaksConst.CONFIG_TREE_FILE);
+            config = new InvTweaksConfig(rulesFile, treeFile);
+            config.load();
+
+            treeItems = new ArrayList<IItemTreeItem>();
+            for (IItemTreeCategory category : config.getTree().getAllCategories()) {
+                for (List<IItemTreeItem> items : category.getItems()) {
+                    for (IItemTreeItem item : items) {
+                        if (Item.itemRegistry.getObject(item.getId()) != null) {
+                            treeItems.add(item);
+                        }
+                    }
+                }
+            }
+        }
+        return config;
+    }
+
+    public static List<IItemTreeItem> getTreeItems() throws Exception {
+        getConfig();
+        return treeItems;
+    }
+
+    /**
+     * @param fill Ratio of non-empty slots
+     */
+    public static ItemStack[] getRandomInventory(Random random, int size, double fill) throws Exception {
+        ItemStack[] stacks = new ItemStack[size];
+        for (int i = 0; i < size; i++) {
+            if (random.nextDouble() < fill) {
+                stacks[i] = getRandomStack(random);
+            }
+        }
+        return stacks;
+    }
+
+    public static ItemStack getRandomStack(Random random) throws Exception {
+        List<IItemTreeItem> items = getTreeItems();
+        IItemTreeItem item = items.get(random.nextInt(items.size()));
+        ItemStack stack = new ItemStack(
+                (Item) Item.itemRegistry.getObject(item.getId()),
+                1,
+                (item.getDamage() == InvTweaksConst.DAMAGE_WILDCARD) ? 0 : item.getDamage());
+        stack.stackSize = 1 + random.nextInt(stack.getMaxStackSize());
+        return stack;
+    }
+
+    /**
+     * Randomly renames and/or enchants the given stack, so that comparisons have NBT to decode.
+     *
+     * @return the same stack
+     */
+    public static ItemStack decorate(Random random, ItemStack stack) {
+        if (random.nextInt(3) == 0) {
+            stack.setStackDisplayName("Stack " + random.nextInt(8));
+        }
+        int enchantments = random.nextInt(3);
+        for (int i = 0; i < enchantments; i++) {
+            stack.addEnchantment(ENCHANTMENTS[random.nextInt(ENCHANTMENTS.length)], 1 + random.nextInt(3));
+        }
+        return stack;
+    }
+
+    public static Collection<IItemTreeCategory> getCategories() throws Exception {
+        return getConfig().getTree().getAllCategories();
+    }
+
+    private static File extractResource(String name, File file) throws IOException {
+        InputStream input = InvTweaksBenchmarkData.class.getResourceAsStream("/assets/inventorytweaks/" + name);
+        OutputStream output = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+            output.close();
+        }
+        return file;
+    }
+
+}
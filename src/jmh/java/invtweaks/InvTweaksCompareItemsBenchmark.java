@@ -0,0 +1,62 @@
+package invtweaks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Stack comparisons, as done by the default sorting. About half the stacks are named and/or enchanted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvTweaksCompareItemsBenchmark {
+
+    private static final int SAMPLES = 256;
+
+    private ItemStack[] stacks;
+    private int[] orders;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        InvTweaksItemTree tree = InvTweaksBenchmarkData.getConfig().getTree();
+        Random random = new Random(0);
+        stacks = new ItemStack[SAMPLES + 1];
+        orders = new int[SAMPLES + 1];
+        for (int i = 0; i <= SAMPLES; i++) {
+            // Pick the same item every now and then, to compare damage values, names, enchantments...
+            ItemStack stack = (i > 0 && random.nextInt(4) == 0) ? stacks[i - 1].copy()
+                    : InvTweaksBenchmarkData.getRandomStack(random);
+            stacks[i] = random.nextBoolean() ? InvTweaksBenchmarkData.decorate(random, stack) : stack;
+            orders[i] = tree.getItemOrder(
+                    Item.itemRegistry.getNameForObject(stacks[i].getItem()),
+                    stacks[i].getItemDamage());
+        }
+    }
+
+    @Benchmark
+    public void compareItems(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(InvTweaks.compareItems(stacks[i], stacks[i + 1], orders[i], orders[i + 1]));
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package invtweaks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import invtweaks.api.IItemTreeCategory;
+import invtweaks.api.IItemTreeItem;
+
+/**
+ * Item lookups and keyword matching, as done for every stack and rule when sorting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvTweaksItemTreeBenchmark {
+
+    private static final int SAMPLES = 256;
+
+    private InvTweaksItemTree tree;
+    private IItemTreeItem[] items;
+    private List<List<IItemTreeItem>> lookups;
+    private String[] keywords;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        tree = InvTweaksBenchmarkData.getConfig().getTree();
+        Random random = new Random(0);
+
+        List<IItemTreeItem> treeItems = InvTweaksBenchmarkData.getTreeItems();
+        items = new IItemTreeItem[SAMPLES];
+        lookups = new ArrayList<List<IItemTreeItem>>();
+        for (int i = 0; i < SAMPLES; i++) {
+            items[i] = treeItems.get(random.nextInt(treeItems.size()));
+            lookups.add(tree.getItems(items[i].getId(), items[i].getDamage()));
+        }
+
+        List<String> categoryNames = new ArrayList<String>();
+        for (IItemTreeCategory category : InvTweaksBenchmarkData.getCategories()) {
+            categoryNames.add(category.getName());
+        }
+        keywords = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            keywords[i] = categoryNames.get(random.nextInt(categoryNames.size()));
+        }
+    }
+
+    @Benchmark
+    public void getItems(Blackhole blackhole) {
+        for (IItemTreeItem item : items) {
+            blackhole.consume(tree.getItems(item.getId(), item.getDamage()));
+        }
+    }
+
+    @Benchmark
+    public void matches(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(tree.matches(lookups.get(i), keywords[i]));
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package invtweaks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.item.ItemStack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import invtweaks.api.SortingMethod;
+
+/**
+ * Sorts synthetic chests in memory, as {@link InvTweaksHandlerSorting#sortSection()} would on the actual container.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvTweaksSortingBenchmark {
+
+    @Param({ "27", "54", "108" })
+    public int size;
+
+    @Param({ "DEFAULT", "VERTICAL", "HORIZONTAL" })
+    public SortingMethod algorithm;
+
+    @Param({ "0.75" })
+    public double fill;
+
+    private InvTweaksConfig config;
+    private ItemStack[] contents;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        config = InvTweaksBenchmarkData.getConfig();
+        contents = InvTweaksBenchmarkData.getRandomInventory(new Random(size), size, fill);
+    }
+
+    @Benchmark
+    public InvTweaksSortingModel sort() {
+        InvTweaksSortingModel model = new InvTweaksSortingModel(contents, true);
+        new InvTweaksHandlerSorting(config, model, false, algorithm, InvTweaksConst.CHEST_ROW_SIZE).sortSection();
+        return model;
+    }
+
+    @Benchmark
+    public InvTweaksSortingPlan sortAndPlan() {
+        return sort().getPlan();
+    }
+
+}
@@ -0,0 +1,38 @@
+package invtweaks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Computation of the slots targeted by a rule constraint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvTweaksSortingRuleBenchmark {
+
+    @Param({ "d1", "a", "3r", "a1-c4", "c9-a1v", "a1-d9r" })
+    public String constraint;
+
+    @Benchmark
+    public int[] getRulePreferredPositions() {
+        return InvTweaksConfigSortingRule.getRulePreferredPositions(
+                constraint,
+                InvTweaksConst.INVENTORY_SIZE,
+                InvTweaksConst.INVENTORY_ROW_SIZE);
+    }
+
+}
@@ -5,7 +5,6 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.logging.Level;
 
@@ -14,7 +13,6 @@ import net.minecraft.client.audio.PositionedSoundRecord;
 import net.minecraft.client.gui.GuiButton;
 import net.minecraft.client.gui.GuiScreen;
 import net.minecraft.client.gui.inventory.GuiContainer;
-import net.minecraft.enchantment.EnchantmentHelper;
 import net.minecraft.init.Items;
 import net.minecraft.inventory.Container;
 import net.minecraft.inventory.Slot;
@@ -24,6 +22,7 @@ import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.StatCollector;
 
 import org.apache.commons.lang3.ObjectUtils;
+import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.lwjgl.LWJGLException;
 import org.lwjgl.input.Keyboard;
@@ -49,7 +48,7 @@ import invtweaks.forge.asm.interfaces.IInvTweaksContainer;
  */
 public class InvTweaks extends InvTweaksObfuscation {
 
-    public static Logger log;
+    public static Logger log = LogManager.getLogger("InvTweaks");
 
     private static InvTweaks instance;
 
@@ -220,7 +219,7 @@ public class InvTweaks extends InvTweaksObfuscation {
         }
         InvTweaksConfig config = cfgManager.getConfig();
         // Handle option to disable this feature
-        if (cfgManager.getConfig().getProperty(InvTweaksConfig.PROP_ENABLE_SORTING_ON_PICKUP).equals("false")) {
+        if (!cfgManager.getConfig().getSnapshot().sortingOnPickupEnabled) {
             itemPickupPending = false;
             return;
         }
@@ -307,88 +306,10 @@ public class InvTweaks extends InvTweaksObfuscation {
         return compareItems(i, j, getItemOrder(i), getItemOrder(j));
     }
 
-    int compareItems(ItemStack i, ItemStack j, int orderI, int orderJ) {
-        if (j == null) {
-            return -1;
-        } else if (i == null || orderI == -1) {
-            return 1;
-        } else {
-            if (orderI == orderJ) {
-                // Items of same keyword orders can have different IDs,
-                // in the case of categories defined by a range of IDs
-                if (i.getItem() == j.getItem()) {
-                    boolean iHasName = i.hasDisplayName();
-                    boolean jHasName = j.hasDisplayName();
-                    if (iHasName || jHasName) {
-                        if (!iHasName) {
-                            return -1;
-                        } else if (!jHasName) {
-                            return 1;
-                        } else {
-                            String iDisplayName = i.getDisplayName();
-                            String jDisplayName = j.getDisplayName();
-
-                            if (!iDisplayName.equals(jDisplayName)) {
-                                return iDisplayName.compareTo(jDisplayName);
-                            }
-                        }
-                    }
-
-                    @SuppressWarnings("unchecked")
-                    Map<Integer, Integer> iEnchs = EnchantmentHelper.getEnchantments(i);
-                    @SuppressWarnings("unchecked")
-                    Map<Integer, Integer> jEnchs = EnchantmentHelper.getEnchantments(j);
-                    if (iEnchs.size() == jEnchs.size()) {
-                        int iEnchMaxId = 0, iEnchMaxLvl = 0;
-                        int jEnchMaxId = 0, jEnchMaxLvl = 0;
-
-                        for (Map.Entry<Integer, Integer> ench : iEnchs.entrySet()) {
-                            if (ench.getValue() > iEnchMaxLvl) {
-                                iEnchMaxId = ench.getKey();
-                                iEnchMaxLvl = ench.getValue();
-                            } else if (ench.getValue() == iEnchMaxLvl && ench.getKey() > iEnchMaxId) {
-                                iEnchMaxId = ench.getKey();
-                            }
-                        }
-
-                        for (Map.Entry<Integer, Integer> ench : jEnchs.entrySet()) {
-                            if (ench.getValue() > jEnchMaxLvl) {
-                                jEnchMaxId = ench.getKey();
-                                jEnchMaxLvl = ench.getValue();
-                            } else if (ench.getValue() == jEnchMaxLvl && ench.getKey() > jEnchMaxId) {
-                                jEnchMaxId = ench.getKey();
-                            }
-                        }
-
-                        if (iEnchMaxId == jEnchMaxId) {
-                            if (iEnchMaxLvl == jEnchMaxLvl) {
-                                if (i.getItemDamage() != j.getItemDamage()) {
-                                    if (i.isItemStackDamageable()) {
-                                        return j.getItemDamage() - i.getItemDamage();
-                                    } else {
-                                        return i.getItemDamage() - j.getItemDamage();
-                                    }
-                                } else {
-                                    return j.stackSize - i.stackSize;
-                                }
-                            } else {
-                                return jEnchMaxLvl - iEnchMaxLvl;
-                            }
-                        } else {
-                            return jEnchMaxId - iEnchMaxId;
-                        }
-                    } else {
-                        return jEnchs.size() - iEnchs.size();
-                    }
-                } else {
-                    return ObjectUtils.compare(
-                            Item.itemRegistry.getNameForObject(i.getItem()),
-                            Item.itemRegistry.getNameForObject(j.getItem()));
-                }
-            } else {
-                return orderI - orderJ;
-            }
-        }
+    static int compareItems(ItemStack i, ItemStack j, int orderI, int orderJ) {
+        return InvTweaksSortKey.compare(
+                (i != null) ? new InvTweaksSortKey(i, orderI) : null,
+                (j != null) ? new InvTweaksSortKey(j, orderJ) : null);
     }
 
     public void setItemPickupPending(boolean itemPickupPending) {
@@ -663,11 +584,9 @@ public class InvTweaks extends InvTweaksObfuscation {
                                     } else {
                                         // Item
                                         int itemMaxDamage = currentStack.getMaxDamage();
-                                        int autoRefillThreshhold = config
-                                                .getIntProperty(InvTweaksConfig.PROP_AUTO_REFILL_DAMAGE_THRESHHOLD);
+                                        int autoRefillThreshhold = config.getSnapshot().autoRefillDamageThreshold;
                                         if (canToolBeReplaced(currentStackDamage, itemMaxDamage, autoRefillThreshhold)
-                                                && config.getProperty(InvTweaksConfig.PROP_AUTO_REFILL_BEFORE_BREAK)
-                                                        .equals(InvTweaksConfig.VALUE_TRUE)
+                                                && config.getSnapshot().autoRefillBeforeBreak
                                                 && config.isAutoRefillEnabled(storedStackId, storedStackDamage)) {
                                             // Trigger auto-refill before the tool breaks
                                             try {
@@ -700,8 +619,7 @@ public class InvTweaks extends InvTweaksObfuscation {
             InvTweaksConfig config = cfgManager.getConfig();
 
             // Check that middle click sorting is allowed
-            if (config.getProperty(InvTweaksConfig.PROP_ENABLE_MIDDLE_CLICK).equals(InvTweaksConfig.VALUE_TRUE)
-                    && guiScreen instanceof GuiContainer) {
+            if (config.getSnapshot().middleClickEnabled && guiScreen instanceof GuiContainer) {
 
                 GuiContainer guiContainer = (GuiContainer) guiScreen;
                 Container container = guiContainer.inventorySlots;
@@ -886,7 +804,7 @@ public class InvTweaks extends InvTweaksObfuscation {
                                     customTextureAvailable));
 
                     // Sorting buttons
-                    if (!config.getProperty(InvTweaksConfig.PROP_SHOW_CHEST_BUTTONS).equals("false")) {
+                    if (config.getSnapshot().chestButtonsShown) {
 
                         int rowSize = ((IInvTweaksContainer) guiContainer.inventorySlots).invtweaks$rowSize();
 
@@ -1015,7 +933,7 @@ public class InvTweaks extends InvTweaksObfuscation {
 
                 // The mouse has just been clicked,
                 // trigger a shortcut according to the pressed keys.
-                if (cfgManager.getConfig().getProperty(InvTweaksConfig.PROP_ENABLE_SHORTCUTS).equals("true")) {
+                if (cfgManager.getConfig().getSnapshot().shortcutsEnabled) {
                     cfgManager.getShortcutsHandler().handleShortcut();
                 }
             }
@@ -1095,8 +1013,7 @@ public class InvTweaks extends InvTweaksObfuscation {
     }
 
     private void playClick() {
-        if (!cfgManager.getConfig().getProperty(InvTweaksConfig.PROP_ENABLE_SOUNDS)
-                .equals(InvTweaksConfig.VALUE_FALSE)) {
+        if (cfgManager.getConfig().getSnapshot().soundsEnabled) {
             mc.getSoundHandler()
                     .playSound(PositionedSoundRecord.func_147674_a(new ResourceLocation("gui.button.press"), 1.0F));
         }
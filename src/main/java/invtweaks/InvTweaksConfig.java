@@ -37,6 +37,7 @@ public class InvTweaksConfig {
     public static final String PROP_SHOW_CHEST_BUTTONS = "showChestButtons";
     public static final String PROP_ENABLE_SORTING_ON_PICKUP = "enableSortingOnPickup";
     public static final String PROP_ENABLE_AUTO_EQUIP_ARMOR = "enableAutoEquipArmor";
+    public static final String PROP_ENABLE_PLANNED_SORTING = "enablePlannedSorting";
     public static final String PROP_ENABLE_AUTO_REFILL = "enableAutoRefill";
     public static final String PROP_AUTO_REFILL_BEFORE_BREAK = "autoRefillBeforeBreak";
     public static final String PROP_AUTO_REFILL_DAMAGE_THRESHHOLD = "autoRefillDamageThreshhold";
@@ -60,6 +61,7 @@ public class InvTweaksConfig {
     public static final String PROP_OBSOLETE_ENABLE_SORTING_SOUND = "enableSortingSound";
     public static final String PROP_OBSOLETE_ENABLE_AUTO_REFILL_SOUND = "enableAutoRefillSound";
     public static final String PROP_ENABLE_SERVER_ITEMSWAP = "enableServerItemSwap";
+    public static final String PROP_CLICKS_PER_TICK = "clicksPerTick";
     public static final String PROP_ENABLE_CONFIG_LOADED_MESSAGE = "enableConfigLoadedMesssage";
     public static final String VALUE_TRUE = "true";
     public static final String VALUE_FALSE = "false";
@@ -76,6 +78,11 @@ public class InvTweaksConfig {
     private File treeFile;
 
     private InvTweaksConfigProperties properties;
+
+    /**
+     * Typed properties, built on first use after each change
+     */
+    private InvTweaksConfigSnapshot snapshot = null;
     private InvTweaksItemTree tree;
     private Vector<InvTweaksConfigInventoryRuleset> rulesets;
     private int currentRuleset = 0;
@@ -105,11 +112,38 @@ public class InvTweaksConfig {
             loadProperties();
             saveProperties(); // Needed to append non-saved properties to the file
 
+            // Load tree, then rules
+            loadTree();
+        }
+
+    }
+
+    /**
+     * Parses the tree file again, then rebuilds the rulesets on top of it since their keywords are resolved through
+     * the tree.
+     */
+    public void loadTree() throws Exception {
+
+        synchronized (this) {
+
+            InvTweaksItemTree newTree = InvTweaksItemTreeLoader.load(treeFile);
             if (tree != null) {
                 MinecraftForge.EVENT_BUS.unregister(tree);
             }
-            // Load tree
-            tree = InvTweaksItemTreeLoader.load(treeFile);
+            tree = newTree;
+
+            loadRules();
+        }
+
+    }
+
+    /**
+     * Rebuilds the rulesets (with their lock priorities and auto-refill rules) from the rules file, keeping the current
+     * tree and properties.
+     */
+    public void loadRules() throws Exception {
+
+        synchronized (this) {
 
             // Read file
             char[] bytes = new char[(int) rulesFile.length()];
@@ -123,49 +157,50 @@ public class InvTweaksConfig {
                 }
             }
 
-            // Split lines into an array
-            String[] configLines = String.valueOf(bytes).replace("\r\n", "\n").replace('\r', '\n').split("\n");
+            InvTweaksConfigRulesTokenizer tokenizer = new InvTweaksConfigRulesTokenizer(String.valueOf(bytes));
 
             // Register rules in various configurations (rulesets)
+            Vector<InvTweaksConfigInventoryRuleset> newRulesets = new Vector<InvTweaksConfigInventoryRuleset>();
+            Vector<String> newInvalidKeywords = new Vector<String>();
             InvTweaksConfigInventoryRuleset activeRuleset = new InvTweaksConfigInventoryRuleset(tree, "Default");
             boolean defaultRuleset = true, defaultRulesetEmpty = true;
             String invalidKeyword;
 
-            for (String line : configLines) {
-                String trimmedLine = line.trim();
-                if (!trimmedLine.isEmpty()) {
-                    // Change ruleset
-                    if (trimmedLine.matches("^[\\w]*[\\s]*\\:$")) {
-                        // Make sure not to add an empty default config to the rulesets
-                        if (!defaultRuleset || !defaultRulesetEmpty) {
-                            activeRuleset.finalizeRules();
-                            rulesets.add(activeRuleset);
-                        }
-                        activeRuleset = new InvTweaksConfigInventoryRuleset(
-                                tree,
-                                trimmedLine.substring(0, trimmedLine.length() - 1));
+            while (tokenizer.nextLine()) {
+                // Change ruleset
+                if (tokenizer.isRulesetHeader()) {
+                    // Make sure not to add an empty default config to the rulesets
+                    if (!defaultRuleset || !defaultRulesetEmpty) {
+                        activeRuleset.finalizeRules();
+                        newRulesets.add(activeRuleset);
                     }
+                    activeRuleset = new InvTweaksConfigInventoryRuleset(tree, tokenizer.getRulesetName());
+                }
 
-                    // Register line
-                    else {
-                        try {
-                            invalidKeyword = activeRuleset.registerLine(trimmedLine);
-                            if (defaultRuleset) {
-                                defaultRulesetEmpty = false;
-                            }
-                            if (invalidKeyword != null) {
-                                invalidKeywords.add(invalidKeyword);
-                            }
-                        } catch (InvalidParameterException e) {
-                            // Invalid line (comments), no problem
+                // Register line
+                else {
+                    try {
+                        invalidKeyword = activeRuleset.registerWords(tokenizer.getWords());
+                        if (defaultRuleset) {
+                            defaultRulesetEmpty = false;
                         }
+                        if (invalidKeyword != null) {
+                            newInvalidKeywords.add(invalidKeyword);
+                            log.warn(
+                                    "Invalid keyword \"" + invalidKeyword + "\" at line " + tokenizer.getLineNumber()
+                                            + ", column " + tokenizer.getColumn(1) + " of the rules file");
+                        }
+                    } catch (InvalidParameterException e) {
+                        // Invalid line (comments), no problem
                     }
                 }
             }
 
             // Finalize
             activeRuleset.finalizeRules();
-            rulesets.add(activeRuleset);
+            newRulesets.add(activeRuleset);
+            rulesets = newRulesets;
+            invalidKeywords = newInvalidKeywords;
 
             // If a specific ruleset was loaded,
             // try to choose the same again, else load the first one
@@ -251,8 +286,22 @@ public class InvTweaksConfig {
         return Integer.parseInt(getProperty(key));
     }
 
+    /**
+     * @return The current properties as typed values. Cheap to call, the snapshot is only built again after properties
+     *         change.
+     */
+    public InvTweaksConfigSnapshot getSnapshot() {
+        InvTweaksConfigSnapshot result = snapshot;
+        if (result == null) {
+            result = new InvTweaksConfigSnapshot(this);
+            snapshot = result;
+        }
+        return result;
+    }
+
     public void setProperty(String key, String value) {
         properties.put(key, value);
+        snapshot = null;
         saveProperties();
         if (key.equals(PROP_ENABLE_MIDDLE_CLICK)) {
             resolveConvenientInventoryConflicts();
@@ -325,8 +374,8 @@ public class InvTweaksConfig {
     }
 
     public boolean isAutoRefillEnabled(String itemID, int itemDamage) {
-        if (!getProperty(PROP_ENABLE_AUTO_REFILL).equals(VALUE_FALSE)) {
-            List<IItemTreeItem> items = tree.getItems(itemID, itemDamage);
+        if (getSnapshot().autoRefillEnabled) {
+            List<IItemTreeItem> items = tree.getCachedItems(itemID, itemDamage);
             Vector<String> autoReplaceRules = rulesets.get(currentRuleset).getAutoReplaceRules();
             boolean found = false;
             for (String keyword : autoReplaceRules) {
@@ -447,6 +496,7 @@ public class InvTweaksConfig {
 
         // Default property values
         properties = new InvTweaksConfigProperties();
+        snapshot = null;
 
         properties.put(PROP_ENABLE_MIDDLE_CLICK, VALUE_TRUE);
         properties.put(PROP_SHOW_CHEST_BUTTONS, VALUE_TRUE);
@@ -457,7 +507,9 @@ public class InvTweaksConfig {
         properties.put(PROP_ENABLE_SOUNDS, VALUE_TRUE);
         properties.put(PROP_ENABLE_SHORTCUTS, VALUE_TRUE);
         properties.put(PROP_ENABLE_AUTO_EQUIP_ARMOR, VALUE_FALSE);
+        properties.put(PROP_ENABLE_PLANNED_SORTING, VALUE_TRUE);
         properties.put(PROP_ENABLE_SERVER_ITEMSWAP, VALUE_TRUE);
+        properties.put(PROP_CLICKS_PER_TICK, "0");
         properties.put(PROP_ENABLE_CONFIG_LOADED_MESSAGE, VALUE_FALSE);
 
         properties.put(PROP_SHORTCUT_ALL_ITEMS, "LCONTROL+LSHIFT, RCONTROL+RSHIFT");
@@ -503,6 +555,7 @@ public class InvTweaksConfig {
                 properties.remove("enableAutoreplaceSound");
             }
         }
+        snapshot = null;
     }
 
     /**
@@ -6,7 +6,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
 
 /**
@@ -57,41 +56,33 @@ public class InvTweaksConfigInventoryRuleset {
      * @throws InvalidParameterException
      */
     public String registerLine(String rawLine) throws InvalidParameterException {
+        return registerWords(InvTweaksConfigRulesTokenizer.tokenize(rawLine));
+    }
+
+    /**
+     * @param words The words of a line, as split by {@link InvTweaksConfigRulesTokenizer}
+     * @return If not null, returns the invalid keyword found
+     * @throws InvalidParameterException
+     */
+    public String registerWords(List<String> words) throws InvalidParameterException {
 
         InvTweaksConfigSortingRule newRule;
-        String[] quoteSplit = rawLine.split("\"");
-        List<String> wordsFlex = new ArrayList<String>();
-        for (int i = 0; i < quoteSplit.length; i++) {
-            if (i % 2 == 0) {
-                String s = quoteSplit[i].replaceAll("^[\\s]+|[\\s]+$", "").replaceAll("[\\s]+", " ").toLowerCase();
-                String[] wordsInSection = s.split(" ");
-                for (int j = 0; j < wordsInSection.length; j++) {
-                    wordsFlex.add(wordsInSection[j]);
-                }
-            } else {
-                wordsFlex.add("\"" + quoteSplit[i] + "\"");
-            }
-        }
-        String lineText = StringUtils.join(wordsFlex, " ");
-        String[] words = wordsFlex.toArray(new String[wordsFlex.size()]);
 
         // Parse valid lines only
-        if (words.length == 2) {
+        if (words.size() == 2) {
+            String constraint = words.get(0), value = words.get(1);
 
             // Standard rules format
-            if (words[0].matches("([a-d]|[1-9]|[r]){1,2}")) {
-
-                words[0] = words[0].toLowerCase();
-                words[1] = words[1];
+            if (isRuleConstraint(constraint)) {
 
                 // Locking rule
-                if (words[1].equals(InvTweaksConfig.LOCKED)) {
+                if (value.equals(InvTweaksConfig.LOCKED)) {
                     int[] newLockedSlots = InvTweaksConfigSortingRule.getRulePreferredPositions(
-                            words[0],
+                            constraint,
                             InvTweaksConst.INVENTORY_SIZE,
                             InvTweaksConst.INVENTORY_ROW_SIZE);
                     int lockPriority = InvTweaksConfigSortingRule
-                            .getRuleType(words[0], InvTweaksConst.INVENTORY_ROW_SIZE).getLowestPriority() - 1;
+                            .getRuleType(constraint, InvTweaksConst.INVENTORY_ROW_SIZE).getLowestPriority() - 1;
                     for (int i : newLockedSlots) {
                         lockPriorities[i] = lockPriority;
                     }
@@ -99,9 +90,9 @@ public class InvTweaksConfigInventoryRuleset {
                 }
 
                 // Freeze rule
-                else if (words[1].equals(InvTweaksConfig.FROZEN)) {
+                else if (value.equals(InvTweaksConfig.FROZEN)) {
                     int[] newLockedSlots = InvTweaksConfigSortingRule.getRulePreferredPositions(
-                            words[0],
+                            constraint,
                             InvTweaksConst.INVENTORY_SIZE,
                             InvTweaksConst.INVENTORY_ROW_SIZE);
                     for (int i : newLockedSlots) {
@@ -112,17 +103,17 @@ public class InvTweaksConfigInventoryRuleset {
 
                 // Standard rule
                 else {
-                    String keyword = words[1].toLowerCase();
+                    String keyword = value.toLowerCase();
                     boolean isValidKeyword = tree.isKeywordValid(keyword);
 
                     // If invalid keyword, guess something similar,
                     // but check first if it's not an item ID
                     // (can be used to make rules for unknown items)
                     if (!isValidKeyword) {
-                        if (keyword.matches("^[0-9-]*$")) {
+                        if (isItemId(keyword)) {
                             isValidKeyword = true;
                         } else {
-                            Vector<String> wordVariants = getKeywordVariants(keyword);
+                            List<String> wordVariants = getKeywordVariants(keyword);
                             for (String wordVariant : wordVariants) {
                                 if (tree.isKeywordValid(wordVariant.toLowerCase())) {
                                     isValidKeyword = true;
@@ -136,7 +127,7 @@ public class InvTweaksConfigInventoryRuleset {
                     if (isValidKeyword) {
                         newRule = new InvTweaksConfigSortingRule(
                                 tree,
-                                words[0],
+                                constraint,
                                 (keyword.startsWith("\"") && keyword.endsWith("\"")) ? keyword : keyword.toLowerCase(),
                                 InvTweaksConst.INVENTORY_SIZE,
                                 InvTweaksConst.INVENTORY_ROW_SIZE);
@@ -148,18 +139,18 @@ public class InvTweaksConfigInventoryRuleset {
                 }
             }
 
-            // Autoreplace rule
-            else if (words[0].equals(InvTweaksConfig.AUTOREFILL) || words[0].equals("autoreplace")) { // Compatibility
-                words[1] = words[1].toLowerCase();
-                if (tree.isKeywordValid(words[1]) || words[1].equals(InvTweaksConfig.AUTOREFILL_NOTHING)) {
-                    autoReplaceRules.add(words[1]);
+            // Autoreplace rule ("autoreplace" for compatibility)
+            else if (constraint.equals(InvTweaksConfig.AUTOREFILL) || constraint.equals("autoreplace")) {
+                value = value.toLowerCase();
+                if (tree.isKeywordValid(value) || value.equals(InvTweaksConfig.AUTOREFILL_NOTHING)) {
+                    autoReplaceRules.add(value);
                 }
                 return null;
             }
 
-        } else if (words.length == 1) {
+        } else if (words.size() == 1) {
 
-            if (words[0].equals(InvTweaksConfig.DEBUG)) {
+            if (words.get(0).equals(InvTweaksConfig.DEBUG)) {
                 debugEnabled = true;
                 return null;
             }
@@ -242,13 +233,59 @@ public class InvTweaksConfigInventoryRuleset {
         return debugEnabled;
     }
 
+    /**
+     * Checks a rule constraint such as "a1", "d" or "r" without regular expressions: one or two characters among a-d,
+     * 1-9 and r.
+     */
+    private static boolean isRuleConstraint(String word) {
+        int length = word.length();
+        if (length < 1 || length > 2) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (!((c >= 'a' && c <= 'd') || (c >= '1' && c <= '9') || c == 'r')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the keyword only contains digits and dashes
+     */
+    private static boolean isItemId(String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            if (!((c >= '0' && c <= '9') || c == '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Compute keyword variants to also match bad keywords. torches => torch diamondSword => sworddiamond woodenPlank =>
      * woodPlank plankwooden plankwood
      */
-    private Vector<String> getKeywordVariants(String keyword) {
-        Vector<String> variants = new Vector<String>();
+    private static List<String> getKeywordVariants(String keyword) {
+        List<String> variants = new ArrayList<String>();
+        addSimpleVariants(keyword, variants);
+
+        // Swap words (swapped keywords are lower-cased, so they only need the simple variants)
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                String swapped = (keyword.substring(i) + keyword.substring(0, i)).toLowerCase();
+                variants.add(swapped);
+                addSimpleVariants(swapped, variants);
+            }
+        }
 
+        return variants;
+    }
+
+    private static void addSimpleVariants(String keyword, List<String> variants) {
         if (keyword.endsWith("es")) { // ex: torches => torch
             variants.add(keyword.substring(0, keyword.length() - 2));
         }
@@ -257,28 +294,14 @@ public class InvTweaksConfigInventoryRuleset {
         }
 
         if (keyword.contains("en")) { // ex: wooden => wood
-            variants.add(keyword.replaceAll("en", ""));
+            variants.add(keyword.replace("en", ""));
         } else {
             if (keyword.contains("wood")) {
-                variants.add(keyword.replaceAll("wood", "wooden"));
+                variants.add(keyword.replace("wood", "wooden"));
             }
             if (keyword.contains("gold")) {
-                variants.add(keyword.replaceAll("gold", "golden"));
-            }
-        }
-
-        // Swap words
-        if (keyword.matches("\\w*[A-Z]\\w*")) {
-            byte[] keywordBytes = keyword.getBytes();
-            for (int i = 0; i < keywordBytes.length; i++) {
-                if (keywordBytes[i] >= 'A' && keywordBytes[i] <= 'Z') {
-                    String swapped = (keyword.substring(i) + keyword.substring(0, i)).toLowerCase();
-                    variants.add(swapped);
-                    variants.addAll(getKeywordVariants(swapped));
-                }
+                variants.add(keyword.replace("gold", "golden"));
             }
         }
-
-        return variants;
     }
 }
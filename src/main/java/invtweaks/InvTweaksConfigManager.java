@@ -28,7 +28,13 @@ public class InvTweaksConfigManager {
      * The mod's configuration.
      */
     private InvTweaksConfig config = null;
-    private long storedConfigLastModified = 0;
+    private long storedRulesLastModified = 0;
+    private long storedTreeLastModified = 0;
+
+    /**
+     * Tells which files changed, when the configuration folder can be watched
+     */
+    private InvTweaksConfigWatcher watcher = null;
 
     private InvTweaksHandlerAutoRefill autoRefillHandler = null;
     private InvTweaksHandlerShortcuts shortcutsHandler = null;
@@ -37,8 +43,10 @@ public class InvTweaksConfigManager {
         this.mc = mc;
     }
 
-    // TODO Only reload modified file(s)
     public boolean makeSureConfigurationIsLoaded() {
+        if (config != null && watcher != null && watcher.isRunning()) {
+            return reloadChangedFiles();
+        }
 
         // Load properties
         try {
@@ -51,16 +59,87 @@ public class InvTweaksConfigManager {
         }
 
         // Load rules + tree files
-        long configLastModified = computeConfigLastModified();
         if (config != null) {
-            // Check time of last edit for both configuration files.
-            if (storedConfigLastModified != configLastModified) {
-                return loadConfig(); // Reload
+            return reloadModifiedFiles(true, true);
+        } else {
+            // Watch first, so that no edit is missed
+            if (watcher == null) {
+                File configDir = InvTweaksConst.MINECRAFT_CONFIG_DIR;
+                if (!configDir.exists()) {
+                    configDir.mkdir();
+                }
+                watcher = new InvTweaksConfigWatcher(configDir);
+                watcher.start();
+            }
+            return loadConfig();
+        }
+    }
+
+    /**
+     * Same as {@link #makeSureConfigurationIsLoaded()}, but only looks at the files the watcher saw being written to.
+     * Modification dates are still compared then, as the mod writes to these files itself.
+     */
+    private boolean reloadChangedFiles() {
+        if (watcher.takePropertiesChanged()) {
+            try {
+                if (config.refreshProperties()) {
+                    shortcutsHandler = new InvTweaksHandlerShortcuts(mc, config);
+                    InvTweaks.logInGameStatic("invtweaks.propsfile.loaded");
+                }
+            } catch (IOException e) {
+                InvTweaks.logInGameErrorStatic("invtweaks.loadconfig.refresh.error", e);
+            }
+        }
+
+        boolean rulesChanged = watcher.takeRulesChanged();
+        boolean treeChanged = watcher.takeTreeChanged();
+        if ((rulesChanged && !InvTweaksConst.CONFIG_RULES_FILE.exists())
+                || (treeChanged && !InvTweaksConst.CONFIG_TREE_FILE.exists())) {
+            // Deleted, restore the default file. Editors that save by replacing the file are handled as edits below.
+            return loadConfig();
+        } else if (rulesChanged || treeChanged) {
+            return reloadModifiedFiles(rulesChanged, treeChanged);
+        }
+        return true;
+    }
+
+    /**
+     * Reloads the rules and/or the tree if their time of last edit changed. The tree is only parsed again if it was
+     * edited, since the rules can be rebuilt on top of the current one. Falls back to a full reload in case of error.
+     */
+    private boolean reloadModifiedFiles(boolean checkRules, boolean checkTree) {
+        boolean rulesModified = checkRules
+                && storedRulesLastModified != InvTweaksConst.CONFIG_RULES_FILE.lastModified();
+        boolean treeModified = checkTree && storedTreeLastModified != InvTweaksConst.CONFIG_TREE_FILE.lastModified();
+        if (!rulesModified && !treeModified) {
+            return true;
+        }
+
+        // An outdated tree must be backed up and replaced, which only a full reload does
+        if (treeModified) {
+            try {
+                if (!InvTweaksItemTreeLoader.isValidVersion(InvTweaksConst.CONFIG_TREE_FILE)) {
+                    return loadConfig();
+                }
+            } catch (Exception e) {
+                return loadConfig();
+            }
+        }
+
+        storeConfigLastModified();
+        try {
+            if (treeModified) {
+                config.loadTree(); // Also rebuilds the rules
             } else {
-                return true;
+                config.loadRules();
             }
-        } else {
-            storedConfigLastModified = configLastModified;
+            if (config.getSnapshot().configLoadedMessageEnabled) {
+                InvTweaks.logInGameStatic("invtweaks.loadconfig.done");
+            }
+            showConfigErrors(config);
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to reload " + (treeModified ? "tree" : "rules") + ": " + e.getMessage());
             return loadConfig();
         }
     }
@@ -77,8 +156,9 @@ public class InvTweaksConfigManager {
         return shortcutsHandler;
     }
 
-    private long computeConfigLastModified() {
-        return InvTweaksConst.CONFIG_RULES_FILE.lastModified() + InvTweaksConst.CONFIG_TREE_FILE.lastModified();
+    private void storeConfigLastModified() {
+        storedRulesLastModified = InvTweaksConst.CONFIG_RULES_FILE.lastModified();
+        storedTreeLastModified = InvTweaksConst.CONFIG_TREE_FILE.lastModified();
     }
 
     /**
@@ -130,7 +210,7 @@ public class InvTweaksConfigManager {
                             + StatCollector.translateToLocal("invtweaks.loadconfig.filemissing"));
         }
 
-        storedConfigLastModified = computeConfigLastModified();
+        storeConfigLastModified();
 
         // Load
 
@@ -150,8 +230,7 @@ public class InvTweaksConfigManager {
             config.load();
             shortcutsHandler.loadShortcuts();
 
-            if (config.getProperty(InvTweaksConfig.PROP_ENABLE_CONFIG_LOADED_MESSAGE)
-                    .equals(InvTweaksConfig.VALUE_TRUE)) {
+            if (config.getSnapshot().configLoadedMessageEnabled) {
                 InvTweaks.logInGameStatic("invtweaks.loadconfig.done");
             }
             showConfigErrors(config);
@@ -0,0 +1,184 @@
+package invtweaks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Splits the rules file into lines and words in a single pass. Words are lower-cased, except quoted ones which are kept
+ * as is, quotes included.
+ */
+public class InvTweaksConfigRulesTokenizer {
+
+    private static final Logger log = InvTweaks.log;
+
+    private final String text;
+    private int position = 0;
+    private int lineNumber = 0;
+    private int lineStart = 0;
+    private int lineEnd = 0;
+    private boolean rulesetHeader = false;
+
+    private final List<String> words = new ArrayList<String>();
+    private int[] columns = new int[4];
+
+    public InvTweaksConfigRulesTokenizer(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Splits a single line into words.
+     */
+    public static List<String> tokenize(String line) {
+        InvTweaksConfigRulesTokenizer tokenizer = new InvTweaksConfigRulesTokenizer(line);
+        if (tokenizer.nextLine() && !tokenizer.isRulesetHeader()) {
+            return tokenizer.getWords();
+        } else {
+            return new ArrayList<String>();
+        }
+    }
+
+    /**
+     * Moves to the next non-blank line.
+     *
+     * @return false when the end of the text is reached
+     */
+    public boolean nextLine() {
+        int length = text.length();
+        while (position < length) {
+            int start = position, end = position;
+            while (end < length && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+                end++;
+            }
+            position = end;
+            if (position < length && text.charAt(position) == '\r') {
+                position++;
+            }
+            if (position < length && text.charAt(position) == '\n') {
+                position++;
+            }
+            lineNumber++;
+
+            // Trim
+            while (start < end && text.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && text.charAt(end - 1) <= ' ') {
+                end--;
+            }
+
+            if (start < end) {
+                lineStart = start;
+                lineEnd = end;
+                words.clear();
+                rulesetHeader = checkRulesetHeader();
+                if (!rulesetHeader) {
+                    tokenizeLine();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the current line number, starting from 1
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return the current line, trimmed
+     */
+    public String getLine() {
+        return text.substring(lineStart, lineEnd);
+    }
+
+    /**
+     * @return true if the current line starts a new ruleset ("name:")
+     */
+    public boolean isRulesetHeader() {
+        return rulesetHeader;
+    }
+
+    /**
+     * @return the name of the ruleset started by the current line
+     */
+    public String getRulesetName() {
+        return text.substring(lineStart, lineEnd - 1);
+    }
+
+    /**
+     * @return the words of the current line. The list is reused by the next line.
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * @return the column of the given word of the current line, starting from 1
+     */
+    public int getColumn(int wordIndex) {
+        return columns[wordIndex] - lineStart + 1;
+    }
+
+    private boolean checkRulesetHeader() {
+        int i = lineStart, last = lineEnd - 1;
+        if (text.charAt(last) != ':') {
+            return false;
+        }
+        while (i < last && isWordChar(text.charAt(i))) {
+            i++;
+        }
+        while (i < last && text.charAt(i) <= ' ') {
+            i++;
+        }
+        return i == last;
+    }
+
+    private void tokenizeLine() {
+        int i = lineStart;
+        while (i < lineEnd) {
+            char c = text.charAt(i);
+            if (c <= ' ') {
+                i++;
+            } else if (c == '"') {
+                int start = i++;
+                while (i < lineEnd && text.charAt(i) != '"') {
+                    i++;
+                }
+                if (i == lineEnd) {
+                    log.warn(
+                            "Missing closing quote at line " + lineNumber + ", column " + (start - lineStart + 1)
+                                    + " of the rules file");
+                    addWord(text.substring(start, i) + "\"", start);
+                } else {
+                    addWord(text.substring(start, ++i), start);
+                }
+            } else {
+                int start = i;
+                while (i < lineEnd && text.charAt(i) > ' ' && text.charAt(i) != '"') {
+                    i++;
+                }
+                addWord(text.substring(start, i).toLowerCase(), start);
+            }
+        }
+    }
+
+    private void addWord(String word, int column) {
+        if (words.size() == columns.length) {
+            int[] newColumns = new int[columns.length * 2];
+            System.arraycopy(columns, 0, newColumns, 0, columns.length);
+            columns = newColumns;
+        }
+        columns[words.size()] = column;
+        words.add(word);
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+}
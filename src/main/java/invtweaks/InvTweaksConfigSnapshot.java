@@ -0,0 +1,55 @@
+package invtweaks;
+
+/**
+ * Typed copy of the configuration properties, so that code running every tick reads fields instead of looking up and
+ * parsing strings. Built again by {@link InvTweaksConfig#getSnapshot()} after properties change.
+ */
+public class InvTweaksConfigSnapshot {
+
+    public final boolean middleClickEnabled;
+    public final boolean chestButtonsShown;
+    public final boolean sortingOnPickupEnabled;
+    public final boolean autoEquipArmorEnabled;
+    public final boolean plannedSortingEnabled;
+    public final boolean autoRefillEnabled;
+    public final boolean autoRefillBeforeBreak;
+    public final int autoRefillDamageThreshold;
+    public final boolean shortcutsEnabled;
+    public final boolean soundsEnabled;
+    public final boolean serverItemSwapEnabled;
+    public final int clicksPerTick;
+    public final boolean configLoadedMessageEnabled;
+
+    public InvTweaksConfigSnapshot(InvTweaksConfig config) {
+        middleClickEnabled = isTrue(config, InvTweaksConfig.PROP_ENABLE_MIDDLE_CLICK);
+        chestButtonsShown = !isFalse(config, InvTweaksConfig.PROP_SHOW_CHEST_BUTTONS);
+        sortingOnPickupEnabled = !isFalse(config, InvTweaksConfig.PROP_ENABLE_SORTING_ON_PICKUP);
+        autoEquipArmorEnabled = isTrue(config, InvTweaksConfig.PROP_ENABLE_AUTO_EQUIP_ARMOR);
+        plannedSortingEnabled = isTrue(config, InvTweaksConfig.PROP_ENABLE_PLANNED_SORTING);
+        autoRefillEnabled = !isFalse(config, InvTweaksConfig.PROP_ENABLE_AUTO_REFILL);
+        autoRefillBeforeBreak = isTrue(config, InvTweaksConfig.PROP_AUTO_REFILL_BEFORE_BREAK);
+        autoRefillDamageThreshold = getInt(config, InvTweaksConfig.PROP_AUTO_REFILL_DAMAGE_THRESHHOLD, 5);
+        shortcutsEnabled = isTrue(config, InvTweaksConfig.PROP_ENABLE_SHORTCUTS);
+        soundsEnabled = !isFalse(config, InvTweaksConfig.PROP_ENABLE_SOUNDS);
+        serverItemSwapEnabled = !isFalse(config, InvTweaksConfig.PROP_ENABLE_SERVER_ITEMSWAP);
+        clicksPerTick = getInt(config, InvTweaksConfig.PROP_CLICKS_PER_TICK, 0);
+        configLoadedMessageEnabled = isTrue(config, InvTweaksConfig.PROP_ENABLE_CONFIG_LOADED_MESSAGE);
+    }
+
+    private static boolean isTrue(InvTweaksConfig config, String key) {
+        return config.getProperty(key).equals(InvTweaksConfig.VALUE_TRUE);
+    }
+
+    private static boolean isFalse(InvTweaksConfig config, String key) {
+        return config.getProperty(key).equals(InvTweaksConfig.VALUE_FALSE);
+    }
+
+    private static int getInt(InvTweaksConfig config, String key, int defaultValue) {
+        try {
+            return config.getIntProperty(key);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+}
@@ -1,6 +1,8 @@
 package invtweaks;
 
 import java.awt.Point;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.Logger;
 
@@ -14,6 +16,12 @@ public class InvTweaksConfigSortingRule implements Comparable<InvTweaksConfigSor
 
     private static final Logger log = InvTweaks.log;
 
+    /**
+     * Preferred positions by constraint, container size and row size. Rules are built again on every chest sort and
+     * auto-refill, always from the same few constraints.
+     */
+    private static final Map<String, int[]> cachedPreferredPositions = new ConcurrentHashMap<String, int[]>();
+
     private String constraint;
     private int[] preferredPositions;
     private String keyword;
@@ -53,7 +61,8 @@ public class InvTweaksConfigSortingRule implements Comparable<InvTweaksConfigSor
     }
 
     /**
-     * @return An array of preferred positions (from the most to the less preferred).
+     * @return An array of preferred positions (from the most to the less preferred). It is shared and must not be
+     *         modified.
      */
     public int[] getPreferredSlots() {
         return preferredPositions;
@@ -89,11 +98,23 @@ public class InvTweaksConfigSortingRule implements Comparable<InvTweaksConfigSor
     }
 
     public int[] getRulePreferredPositions(String constraint) {
-        // TODO Caching
         return InvTweaksConfigSortingRule.getRulePreferredPositions(constraint, containerSize, containerRowSize);
     }
 
+    /**
+     * @return The preferred positions of the constraint. The array is shared and must not be modified.
+     */
     public static int[] getRulePreferredPositions(String constraint, int containerSize, int containerRowSize) {
+        String key = constraint + ":" + containerSize + ":" + containerRowSize;
+        int[] result = cachedPreferredPositions.get(key);
+        if (result == null) {
+            result = computeRulePreferredPositions(constraint, containerSize, containerRowSize);
+            cachedPreferredPositions.put(key, result);
+        }
+        return result;
+    }
+
+    private static int[] computeRulePreferredPositions(String constraint, int containerSize, int containerRowSize) {
 
         int[] result = null;
         int containerColumnSize = containerSize / containerRowSize;
@@ -0,0 +1,121 @@
+package invtweaks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Watches the configuration folder on a background thread, and flags the configuration files that have been written
+ * to or deleted, so that the game doesn't have to check their modification dates all the time.
+ */
+public class InvTweaksConfigWatcher implements Runnable {
+
+    private static final Logger log = InvTweaks.log;
+
+    private final File directory;
+    private final AtomicBoolean propertiesChanged = new AtomicBoolean(false);
+    private final AtomicBoolean rulesChanged = new AtomicBoolean(false);
+    private final AtomicBoolean treeChanged = new AtomicBoolean(false);
+    private WatchService watchService = null;
+    private volatile boolean running = false;
+
+    public InvTweaksConfigWatcher(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return false if the folder can't be watched, in which case files have to be checked the usual way.
+     */
+    public boolean start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.toPath().register(
+                    watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Cannot watch configuration folder: " + e.getMessage());
+            return false;
+        }
+
+        running = true;
+        Thread thread = new Thread(this, "Inventory Tweaks config watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return true if the properties file has been written to or deleted since the last call
+     */
+    public boolean takePropertiesChanged() {
+        return propertiesChanged.getAndSet(false);
+    }
+
+    /**
+     * @return true if the rules file has been written to or deleted since the last call
+     */
+    public boolean takeRulesChanged() {
+        return rulesChanged.getAndSet(false);
+    }
+
+    /**
+     * @return true if the tree file has been written to or deleted since the last call
+     */
+    public boolean takeTreeChanged() {
+        return treeChanged.getAndSet(false);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Some events were lost
+                        propertiesChanged.set(true);
+                        rulesChanged.set(true);
+                        treeChanged.set(true);
+                    } else {
+                        String name = ((Path) event.context()).getFileName().toString();
+                        AtomicBoolean changed = null;
+                        if (name.equals(InvTweaksConst.CONFIG_PROPS_FILE.getName())) {
+                            changed = propertiesChanged;
+                        } else if (name.equals(InvTweaksConst.CONFIG_RULES_FILE.getName())) {
+                            changed = rulesChanged;
+                        } else if (name.equals(InvTweaksConst.CONFIG_TREE_FILE.getName())) {
+                            changed = treeChanged;
+                        }
+                        if (changed != null) {
+                            changed.set(true);
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    log.warn("Configuration folder is no longer watched");
+                    break;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        } finally {
+            running = false;
+        }
+    }
+
+}
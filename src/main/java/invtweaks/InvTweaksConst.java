@@ -22,9 +22,18 @@ public class InvTweaksConst {
 
     // Network Protocol version
     public static final byte PROTOCOL_VERSION = 2;
+    // Additions that older clients can ignore, sent by the server on login
+    public static final byte PROTOCOL_REVISION = 4;
+    public static final byte PROTOCOL_REVISION_SORT_PLAN = 1;
+    public static final byte PROTOCOL_REVISION_CLICK_BATCH = 2;
+    public static final byte PROTOCOL_REVISION_SORT_CHECKSUMS = 3;
+    public static final byte PROTOCOL_REVISION_COMPACT_CLICK = 4;
     public static final byte PACKET_LOGIN = 0x00;
     public static final byte PACKET_CLICK = 0x01;
     public static final byte PACKET_SORTCOMPLETE = 0x02;
+    public static final byte PACKET_SORTPLAN = 0x03;
+    public static final byte PACKET_CLICKBATCH = 0x04;
+    public static final byte PACKET_CLICKCOMPACT = 0x05;
 
     // Timing constants
     public static final int RULESET_SWAP_DELAY = 1000;
@@ -35,11 +44,14 @@ public class InvTweaksConst {
     public static final int TOOLTIP_DELAY = 800;
 
     // File constants
-    public static final File MINECRAFT_DIR = Minecraft.getMinecraft().mcDataDir;
+    // (Falls back to the working directory when running without the game)
+    public static final File MINECRAFT_DIR = (Minecraft.getMinecraft() != null) ? Minecraft.getMinecraft().mcDataDir
+            : new File(".");
     public static final File MINECRAFT_CONFIG_DIR = new File(MINECRAFT_DIR, "config/");
     public static final File CONFIG_PROPS_FILE = new File(MINECRAFT_CONFIG_DIR, "InvTweaks.cfg");
     public static final File CONFIG_RULES_FILE = new File(MINECRAFT_CONFIG_DIR, "InvTweaksRules.txt");
     public static final File CONFIG_TREE_FILE = new File(MINECRAFT_CONFIG_DIR, "InvTweaksTree.txt");
+    public static final File CONFIG_TREE_CACHE_FILE = new File(MINECRAFT_CONFIG_DIR, "InvTweaksTree.cache");
     public static final File OLD_CONFIG_TREE_FILE = new File(MINECRAFT_CONFIG_DIR, "InvTweaksTree.xml");
     public static final File OLDER_CONFIG_RULES_FILE = new File(MINECRAFT_DIR, "InvTweaksRules.txt");
     public static final File OLDER_CONFIG_TREE_FILE = new File(MINECRAFT_DIR, "InvTweaksTree.txt");
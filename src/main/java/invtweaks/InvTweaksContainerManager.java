@@ -1,8 +1,13 @@
 package invtweaks;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeoutException;
 
 import net.minecraft.client.Minecraft;
@@ -33,7 +38,43 @@ public class InvTweaksContainerManager/* extends InvTweaksObfuscation */ {
     private GuiContainer guiContainer;
     private Container container;
     private Map<ContainerSection, List<Slot>> slotRefs = new HashMap<ContainerSection, List<Slot>>();
-    private int clickDelay = 0;
+
+    /**
+     * Index of each slot number in each section (by ordinal), -1 if not in it
+     */
+    private int[][] sectionIndexes;
+
+    /**
+     * Section and index of each slot number, as returned by {@link #getSlotSection(int)} and
+     * {@link #getSlotIndex(int, boolean)}
+     */
+    private ContainerSection[] slotSections;
+    private int[] slotIndexes;
+    private int[] inventorySlotIndexes;
+
+    /**
+     * Standard slot numbers, in the order they are looked up for an empty one, and their position in that order
+     */
+    private int[] usableSlotNumbers;
+    private int[] usablePositions;
+
+    /**
+     * Empty slots and partial stacks of each section (by ordinal), built on first use
+     */
+    private SectionContents[] sectionContents;
+
+    /**
+     * Clicks made by all managers so far, and the count {@link #sectionContents} is up to date with. When another
+     * manager clicked meanwhile (ex. the one of a section manager during a sort), the contents are built again.
+     */
+    private static long clickCount = 0;
+    private long sectionContentsClickCount = 0;
+
+    /**
+     * Standard slots before this one were full when last checked, and haven't been clicked since. Lowered on each
+     * click, as a click only empties the clicked slot.
+     */
+    private int firstEmptyUsableHint;
 
     /**
      * Creates an container manager linked to the currently available container: - If a container GUI is open, the
@@ -81,6 +122,49 @@ public class InvTweaksContainerManager/* extends InvTweaksObfuscation */ {
                     slots.subList(size - InvTweaksConst.INVENTORY_SIZE, size - HOTBAR_SIZE));
             slotRefs.put(ContainerSection.INVENTORY_HOTBAR, slots.subList(size - HOTBAR_SIZE, size));
         }
+
+        // Lookup tables, filled in the same order as the former scans to give the same results
+        ContainerSection[] sections = ContainerSection.values();
+        sectionIndexes = new int[sections.length][];
+        slotSections = new ContainerSection[size];
+        slotIndexes = new int[size];
+        inventorySlotIndexes = new int[size];
+        Arrays.fill(slotIndexes, -1);
+        Arrays.fill(inventorySlotIndexes, -1);
+        usableSlotNumbers = new int[size];
+        usablePositions = new int[size];
+        Arrays.fill(usablePositions, -1);
+        int usableCount = 0;
+        for (ContainerSection section : slotRefs.keySet()) {
+            int[] indexes = new int[size];
+            Arrays.fill(indexes, -1);
+            sectionIndexes[section.ordinal()] = indexes;
+            int i = 0;
+            for (Slot slot : slotRefs.get(section)) {
+                int slotNumber = InvTweaksObfuscation.getSlotNumber(slot);
+                if (slotNumber >= 0 && slotNumber < size) {
+                    if (indexes[slotNumber] == -1) {
+                        indexes[slotNumber] = i;
+                    }
+                    if (section != ContainerSection.INVENTORY && slotSections[slotNumber] == null) {
+                        slotSections[slotNumber] = section;
+                        slotIndexes[slotNumber] = i;
+                    }
+                    if (section != ContainerSection.INVENTORY_NOT_HOTBAR && section != ContainerSection.INVENTORY_HOTBAR
+                            && inventorySlotIndexes[slotNumber] == -1) {
+                        inventorySlotIndexes[slotNumber] = i;
+                    }
+                    if (InvTweaksObfuscation.isBasicSlot(slot) && usablePositions[slotNumber] == -1) {
+                        usablePositions[slotNumber] = usableCount;
+                        usableSlotNumbers[usableCount++] = slotNumber;
+                    }
+                }
+                i++;
+            }
+        }
+        usableSlotNumbers = Arrays.copyOf(usableSlotNumbers, usableCount);
+        sectionContents = new SectionContents[sections.length];
+        firstEmptyUsableHint = 0;
     }
 
     /**
@@ -272,6 +356,11 @@ public class InvTweaksContainerManager/* extends InvTweaksObfuscation */ {
         // System.out.println("Click " + section + ":" + index);
         // Click! (we finally call the Minecraft code)
         int slot = indexToSlot(section, index);
+        if (slot >= 0 && slot < slotIndexes.length) {
+            if (usablePositions[slot] != -1 && usablePositions[slot] < firstEmptyUsableHint) {
+                firstEmptyUsableHint = usablePositions[slot];
+            }
+        }
         if (slot != -1) {
             int data = (rightClick) ? 1 : 0;
             InvTweaksMod.proxy.slotClick(
@@ -282,13 +371,17 @@ public class InvTweaksContainerManager/* extends InvTweaksObfuscation */ {
                     0,
                     InvTweaks.getInstance().getThePlayer());
         }
-
-        if (clickDelay > 0) {
-            try {
-                Thread.sleep(clickDelay);
-            } catch (InterruptedException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+        boolean upToDate = sectionContentsClickCount == clickCount;
+        clickCount++;
+        if (upToDate) {
+            sectionContentsClickCount = clickCount;
+        }
+        if (upToDate && slot >= 0 && slot < slotIndexes.length) {
+            // A click only changes the clicked slot (and the held stack)
+            for (int s = 0; s < sectionContents.length; s++) {
+                if (sectionContents[s] != null && sectionIndexes[s][slot] != -1) {
+                    sectionContents[s].update(sectionIndexes[s][slot]);
+                }
             }
         }
     }
@@ -331,14 +424,29 @@ public class InvTweaksContainerManager/* extends InvTweaksObfuscation */ {
      * @return -1 if no slot is free
      */
     public int getFirstEmptyIndex(ContainerSection section) {
-        int i = 0;
-        for (Slot slot : slotRefs.get(section)) {
-            if (!slot.getHasStack()) {
-                return i;
-            }
-            i++;
+        return getSectionContents(section).getFirstEmptyIndex();
+    }
+
+    /**
+     * @param stack An item stack
+     * @return The index of the first stack of the section with the same item and damage, no NBT and some room left, or
+     *         -1 if there is none.
+     */
+    public int getFirstPartialIndex(ContainerSection section, ItemStack stack) {
+        return getSectionContents(section).getFirstPartialIndex(stack);
+    }
+
+    private SectionContents getSectionContents(ContainerSection section) {
+        if (sectionContentsClickCount != clickCount) {
+            Arrays.fill(sectionContents, null);
+            sectionContentsClickCount = clickCount;
         }
-        return -1;
+        SectionContents contents = sectionContents[section.ordinal()];
+        if (contents == null) {
+            contents = new SectionContents(slotRefs.get(section));
+            sectionContents[section.ordinal()] = contents;
+        }
+        return contents;
     }
 
     /**
@@ -386,21 +494,10 @@ public class InvTweaksContainerManager/* extends InvTweaksObfuscation */ {
      * @return Full index of slot in the container
      */
     public int getSlotIndex(int slotNumber, boolean preferInventory) {
-        // TODO Caching with getSlotSection
-        for (ContainerSection section : slotRefs.keySet()) {
-            if (!preferInventory && section != ContainerSection.INVENTORY
-                    || (preferInventory && section != ContainerSection.INVENTORY_NOT_HOTBAR
-                            && section != ContainerSection.INVENTORY_HOTBAR)) {
-                int i = 0;
-                for (Slot slot : slotRefs.get(section)) {
-                    if (InvTweaksObfuscation.getSlotNumber(slot) == slotNumber) {
-                        return i;
-                    }
-                    i++;
-                }
-            }
+        if (slotNumber < 0 || slotNumber >= slotIndexes.length) {
+            return -1;
         }
-        return -1;
+        return preferInventory ? inventorySlotIndexes[slotNumber] : slotIndexes[slotNumber];
     }
 
     /**
@@ -410,17 +507,10 @@ public class InvTweaksContainerManager/* extends InvTweaksObfuscation */ {
      * @return null if the slot number is invalid.
      */
     public ContainerSection getSlotSection(int slotNumber) {
-        // TODO Caching with getSlotIndex
-        for (ContainerSection section : slotRefs.keySet()) {
-            if (section != ContainerSection.INVENTORY) {
-                for (Slot slot : slotRefs.get(section)) {
-                    if (InvTweaksObfuscation.getSlotNumber(slot) == slotNumber) {
-                        return section;
-                    }
-                }
-            }
+        if (slotNumber < 0 || slotNumber >= slotSections.length) {
+            return null;
         }
-        return null;
+        return slotSections[slotNumber];
     }
 
     /**
@@ -445,16 +535,39 @@ public class InvTweaksContainerManager/* extends InvTweaksObfuscation */ {
     }
 
     private int getFirstEmptyUsableSlotNumber() {
+        // Use only standard slot (to make sure
+        // we can freely put and remove items there)
+        for (int i = firstEmptyUsableHint; i < usableSlotNumbers.length; i++) {
+            if (!container.getSlot(usableSlotNumbers[i]).getHasStack()) {
+                firstEmptyUsableHint = i;
+                return usableSlotNumbers[i];
+            }
+        }
+        for (int i = 0; i < firstEmptyUsableHint && i < usableSlotNumbers.length; i++) {
+            if (!container.getSlot(usableSlotNumbers[i]).getHasStack()) {
+                firstEmptyUsableHint = i;
+                return usableSlotNumbers[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param excludedSection A section whose slots must not be returned, or null
+     * @return The numbers of all empty standard slots.
+     */
+    public List<Integer> getEmptyUsableSlotNumbers(ContainerSection excludedSection) {
+        List<Slot> excludedSlots = (excludedSection != null) ? slotRefs.get(excludedSection) : null;
+        Set<Integer> slotNumbers = new LinkedHashSet<Integer>();
         for (ContainerSection section : slotRefs.keySet()) {
             for (Slot slot : slotRefs.get(section)) {
-                // Use only standard slot (to make sure
-                // we can freely put and remove items there)
-                if (InvTweaksObfuscation.isBasicSlot(slot) && !slot.getHasStack()) {
-                    return InvTweaksObfuscation.getSlotNumber(slot);
+                if (InvTweaksObfuscation.isBasicSlot(slot) && !slot.getHasStack()
+                        && (excludedSlots == null || !excludedSlots.contains(slot))) {
+                    slotNumbers.add(InvTweaksObfuscation.getSlotNumber(slot));
                 }
             }
         }
-        return -1;
+        return new ArrayList<Integer>(slotNumbers);
     }
 
     /**
@@ -486,8 +599,97 @@ public class InvTweaksContainerManager/* extends InvTweaksObfuscation */ {
         }
     }
 
-    public void setClickDelay(int delay) {
-        this.clickDelay = delay;
+    /**
+     * @deprecated Clicks are no longer delayed here, as it froze the game. They are sent to the server at the pace set
+     *             by {@link InvTweaksConfig#PROP_CLICKS_PER_TICK} instead.
+     */
+    @Deprecated
+    public void setClickDelay(int delay) {}
+
+    /**
+     * Empty slots and partial stacks (by item ID) of a section, read once from the slots, then kept up to date with the
+     * manager's clicks. Slots filled otherwise (server updates...) are skipped when found, but slots emptied otherwise
+     * are only seen once the contents are built again.
+     */
+    private static class SectionContents {
+
+        private final List<Slot> slots;
+        private final BitSet emptySlots = new BitSet();
+
+        /**
+         * Item ID of the partial stack in each slot, -1 if none
+         */
+        private final int[] partialItems;
+        private final InvTweaksIntMap partialSetIndexes = new InvTweaksIntMap();
+        private final List<BitSet> partialSets = new ArrayList<BitSet>();
+
+        public SectionContents(List<Slot> slots) {
+            this.slots = slots;
+            partialItems = new int[slots.size()];
+            Arrays.fill(partialItems, -1);
+            updateAll();
+        }
+
+        public int getFirstEmptyIndex() {
+            for (int i = emptySlots.nextSetBit(0); i >= 0; i = emptySlots.nextSetBit(i + 1)) {
+                if (!slots.get(i).getHasStack()) {
+                    return i;
+                }
+                update(i);
+            }
+            return -1;
+        }
+
+        /**
+         * Not rescanned when nothing is found, as missing a partial stack only means an empty slot gets used.
+         */
+        public int getFirstPartialIndex(ItemStack stack) {
+            int itemId = InvTweaksItemIds.get(stack);
+            int setIndex = partialSetIndexes.get(itemId);
+            if (setIndex == InvTweaksIntMap.MISSING) {
+                return -1;
+            }
+            BitSet partials = partialSets.get(setIndex);
+            for (int i = partials.nextSetBit(0); i >= 0; i = partials.nextSetBit(i + 1)) {
+                update(i);
+                if (partialItems[i] == itemId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        public void update(int index) {
+            ItemStack stack = slots.get(index).getStack();
+            emptySlots.set(index, stack == null);
+
+            int itemId = -1;
+            if (stack != null && !stack.hasTagCompound() && stack.stackSize < stack.getMaxStackSize()) {
+                itemId = InvTweaksItemIds.get(stack);
+            }
+            if (itemId != partialItems[index]) {
+                if (partialItems[index] != -1) {
+                    partialSets.get(partialSetIndexes.get(partialItems[index])).clear(index);
+                }
+                if (itemId != -1) {
+                    int setIndex = partialSetIndexes.get(itemId);
+                    if (setIndex == InvTweaksIntMap.MISSING) {
+                        setIndex = partialSets.size();
+                        partialSets.add(new BitSet());
+                        partialSetIndexes.put(itemId, setIndex);
+                    }
+                    partialSets.get(setIndex).set(index);
+                }
+                partialItems[index] = itemId;
+            }
+        }
+
+        private void updateAll() {
+            for (int i = 0; i < slots.size(); i++) {
+                update(i);
+            }
+        }
+
     }
 
 }
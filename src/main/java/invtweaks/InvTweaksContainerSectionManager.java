@@ -16,7 +16,7 @@ import invtweaks.api.container.ContainerSection;
  *
  * @author Jimeo Wan
  */
-public class InvTweaksContainerSectionManager {
+public class InvTweaksContainerSectionManager implements InvTweaksSlotStore {
 
     private InvTweaksContainerManager containerMgr;
     private ContainerSection section;
@@ -25,9 +25,11 @@ public class InvTweaksContainerSectionManager {
         this(new InvTweaksContainerManager(mc), section);
     }
 
-    public void setClickDelay(int delay) {
-        this.containerMgr.setClickDelay(delay);
-    }
+    /**
+     * @deprecated See {@link InvTweaksContainerManager#setClickDelay(int)}
+     */
+    @Deprecated
+    public void setClickDelay(int delay) {}
 
     public InvTweaksContainerSectionManager(InvTweaksContainerManager manager, ContainerSection section)
             throws Exception {
@@ -66,7 +68,7 @@ public class InvTweaksContainerSectionManager {
         containerMgr.rightClick(section, index);
     }
 
-    public void click(int index, boolean rightClick) throws TimeoutException {
+    public void click(int index, boolean rightClick) {
         containerMgr.click(section, index, rightClick);
     }
 
@@ -106,6 +108,10 @@ public class InvTweaksContainerSectionManager {
         return containerMgr.getItemStack(section, index);
     }
 
+    public ItemStack getHeldStack() {
+        return InvTweaks.getInstance().getHeldStack();
+    }
+
     public Container getContainer() {
         return containerMgr.getContainer();
     }
@@ -9,8 +9,6 @@ import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.ResourceLocation;
 
-import org.apache.commons.lang3.ObjectUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
 
 import invtweaks.api.IItemTreeItem;
@@ -49,8 +47,7 @@ public class InvTweaksHandlerAutoRefill extends InvTweaksObfuscation {
                 ContainerSection.INVENTORY);
         ItemStack candidateStack, replacementStack = null;
         int replacementStackSlot = -1;
-        boolean refillBeforeBreak = config.getProperty(InvTweaksConfig.PROP_AUTO_REFILL_BEFORE_BREAK)
-                .equals(InvTweaksConfig.VALUE_TRUE);
+        boolean refillBeforeBreak = config.getSnapshot().autoRefillBeforeBreak;
         boolean hasSubtypes = false;
 
         Item original = (Item) Item.itemRegistry.getObject(wantedId);
@@ -67,7 +64,7 @@ public class InvTweaksHandlerAutoRefill extends InvTweaksObfuscation {
 
             //// Search replacement
 
-            List<IItemTreeItem> items = tree.getItems(wantedId, wantedDamage);
+            List<IItemTreeItem> items = tree.getCachedItems(wantedId, wantedDamage);
 
             // Find rules that match the slot
             for (IItemTreeItem item : items) {
@@ -95,6 +92,14 @@ public class InvTweaksHandlerAutoRefill extends InvTweaksObfuscation {
                 }
             }
 
+            // Tree items of each stack, looked up once for all rules
+            List<List<IItemTreeItem>> candidateItems = new ArrayList<List<IItemTreeItem>>();
+            for (int i = 0; i < InvTweaksConst.INVENTORY_SIZE; i++) {
+                candidateStack = container.getItemStack(i);
+                candidateItems
+                        .add((candidateStack != null) ? tree.getItems(InvTweaksItemIds.get(candidateStack)) : null);
+            }
+
             // Look only for a matching stack
             // First, look for the same item,
             // else one that matches the slot's rules
@@ -102,10 +107,7 @@ public class InvTweaksHandlerAutoRefill extends InvTweaksObfuscation {
                 for (int i = 0; i < InvTweaksConst.INVENTORY_SIZE; i++) {
                     candidateStack = container.getItemStack(i);
                     if (candidateStack != null) {
-                        List<IItemTreeItem> candidateItems = tree.getItems(
-                                Item.itemRegistry.getNameForObject(candidateStack.getItem()),
-                                candidateStack.getItemDamage());
-                        if (tree.matches(candidateItems, rule.getKeyword())) {
+                        if (tree.matches(candidateItems.get(i), rule.getKeyword())) {
                             // Choose tool of highest damage value
                             if (candidateStack.getMaxStackSize() == 1) {
                                 // Item
@@ -113,8 +115,7 @@ public class InvTweaksHandlerAutoRefill extends InvTweaksObfuscation {
                                         || candidateStack.getItemDamage() > replacementStack.getItemDamage())
                                         && (!refillBeforeBreak
                                                 || candidateStack.getMaxDamage() - candidateStack.getItemDamage()
-                                                        > config.getIntProperty(
-                                                                InvTweaksConfig.PROP_AUTO_REFILL_DAMAGE_THRESHHOLD))) {
+                                                        > config.getSnapshot().autoRefillDamageThreshold)) {
                                     replacementStack = candidateStack;
                                     replacementStackSlot = i;
                                 }
@@ -135,8 +136,7 @@ public class InvTweaksHandlerAutoRefill extends InvTweaksObfuscation {
         else {
             for (int i = 0; i < InvTweaksConst.INVENTORY_SIZE; i++) {
                 candidateStack = container.getItemStack(i);
-                if (candidateStack != null
-                        && ObjectUtils.equals(Item.itemRegistry.getNameForObject(candidateStack.getItem()), wantedId)
+                if (candidateStack != null && candidateStack.getItem() == original
                         && candidateStack.getItemDamage() == wantedDamage) {
                     replacementStack = candidateStack;
                     replacementStackSlot = i;
@@ -159,7 +159,7 @@ public class InvTweaksHandlerAutoRefill extends InvTweaksObfuscation {
                 private InvTweaksContainerSectionManager containerMgr;
                 private int targetedSlot;
                 private int i;
-                private String expectedItemId;
+                private Item expectedItem;
                 private boolean refillBeforeBreak;
 
                 public Runnable init(Minecraft mc, int i, int currentItem, boolean refillBeforeBreak) throws Exception {
@@ -167,11 +167,10 @@ public class InvTweaksHandlerAutoRefill extends InvTweaksObfuscation {
                     this.targetedSlot = currentItem;
                     if (i != -1) {
                         this.i = i;
-                        this.expectedItemId = Item.itemRegistry
-                                .getNameForObject(containerMgr.getItemStack(i).getItem());
+                        this.expectedItem = containerMgr.getItemStack(i).getItem();
                     } else {
                         this.i = containerMgr.getFirstEmptyIndex();
-                        this.expectedItemId = null;
+                        this.expectedItem = null;
                     }
                     this.refillBeforeBreak = refillBeforeBreak;
                     return this;
@@ -197,12 +196,10 @@ public class InvTweaksHandlerAutoRefill extends InvTweaksObfuscation {
                     // Since last tick, things might have changed
                     ItemStack stack = containerMgr.getItemStack(i);
 
-                    if (stack != null
-                            && StringUtils.equals(Item.itemRegistry.getNameForObject(stack.getItem()), expectedItemId)
+                    if (stack != null && stack.getItem() == expectedItem
                             || this.refillBeforeBreak) {
                         if (containerMgr.move(targetedSlot, i) || containerMgr.move(i, targetedSlot)) {
-                            if (!config.getProperty(InvTweaksConfig.PROP_ENABLE_SOUNDS)
-                                    .equals(InvTweaksConfig.VALUE_FALSE)) {
+                            if (config.getSnapshot().soundsEnabled) {
                                 mc.getSoundHandler().playSound(
                                         PositionedSoundRecord
                                                 .func_147674_a(new ResourceLocation("mob.chicken.plop"), 1.0F));
@@ -494,19 +494,8 @@ public class InvTweaksHandlerShortcuts extends InvTweaksObfuscation {
         int result = -1;
 
         // Try to merge with existing slot
-        if (!shortcut.forceEmptySlot) {
-            int i = 0;
-            for (Slot slot : container.getSlots(shortcut.toSection)) {
-                if (slot.getHasStack()) {
-                    ItemStack stack = slot.getStack();
-                    if (!stack.hasTagCompound() && stack.isItemEqual(shortcut.fromStack)
-                            && stack.stackSize < stack.getMaxStackSize()) {
-                        result = i;
-                        break;
-                    }
-                }
-                i++;
-            }
+        if (!shortcut.forceEmptySlot && shortcut.fromStack != null) {
+            result = container.getFirstPartialIndex(shortcut.toSection, shortcut.fromStack);
         }
 
         // Else find empty slot
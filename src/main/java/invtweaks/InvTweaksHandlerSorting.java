@@ -1,13 +1,17 @@
 package invtweaks;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 
 import net.minecraft.client.Minecraft;
@@ -16,7 +20,6 @@ import net.minecraft.item.Item;
 import net.minecraft.item.ItemArmor;
 import net.minecraft.item.ItemStack;
 
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.Logger;
 
 import invtweaks.api.IItemTreeItem;
@@ -41,6 +44,17 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
     private static boolean[] DEFAULT_FROZEN_SLOTS = null;
     private static final int MAX_CONTAINER_SIZE = 999;
 
+    /**
+     * Computes sorting plans, so that big containers and rule sets don't hold up the game
+     */
+    private static ExecutorService planner = null;
+
+    /**
+     * Sort whose plan is being computed, applied from the client tick once ready. Other sorts are ignored meanwhile, as
+     * they would be based on the same contents.
+     */
+    private static volatile InvTweaksHandlerSorting pendingSort = null;
+
     public static final int ALGORITHM_DEFAULT = 0;
     public static final int ALGORITHM_VERTICAL = 1;
     public static final int ALGORITHM_HORIZONTAL = 2;
@@ -48,9 +62,16 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
     public static final int ALGORITHM_EVEN_STACKS = 4;
 
     private InvTweaksContainerSectionManager containerMgr;
+    private ContainerSection section;
+
+    /**
+     * Slots being sorted: the section itself, or a copy of it while computing a sorting plan.
+     */
+    private InvTweaksSlotStore store;
     private SortingMethod algorithm;
     private int size;
     private boolean sortArmorParts;
+    private boolean plannedSorting;
 
     private InvTweaksItemTree tree;
     private Vector<InvTweaksConfigSortingRule> rules;
@@ -59,10 +80,61 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
     private int[] lockPriorities;
     private boolean[] frozenSlots;
 
+    /**
+     * Item of each slot while applying the rules, as an index in the columns of {@link #ruleMatches}. Follows the
+     * stacks as they are moved.
+     */
+    private int[] slotItems;
+
+    /**
+     * Items matched by each rule, computed once per sort
+     */
+    private BitSet[] ruleMatches;
+
+    /**
+     * Sort key of each slot, computed again only when the slot content changes
+     */
+    private InvTweaksSortKey[] sortKeys;
+
+    /**
+     * State of the sort while its plan is being computed
+     */
+    private Future<InvTweaksSortingPlan> plan;
+    private InvTweaksContainerManager plannedContainer;
+    private long plannedTimer;
+    private ItemStack[] plannedContents;
+    private ItemStack plannedHeldStack;
+    private int[] initialRulePriority;
+    private int[] initialKeywordOrder;
+
     public InvTweaksHandlerSorting(Minecraft mc, InvTweaksConfig config, ContainerSection section,
             SortingMethod algorithm, int rowSize) throws Exception {
         super(mc);
 
+        this.containerMgr = new InvTweaksContainerSectionManager(mc, section);
+        this.section = section;
+        // FIXME Armor parts disappear when sorting in creative mode while holding an item
+        this.sortArmorParts = config.getSnapshot().autoEquipArmorEnabled
+                && !isGuiInventoryCreative(getCurrentScreen());
+        this.plannedSorting = config.getSnapshot().plannedSortingEnabled;
+
+        init(config, containerMgr, section == ContainerSection.INVENTORY, algorithm, rowSize);
+    }
+
+    /**
+     * Allows to sort any slot store, even without a running game, through {@link #sortSection()}.
+     *
+     * @param inventory Whether the store stands for the player inventory, in which case the algorithm is ignored
+     */
+    public InvTweaksHandlerSorting(InvTweaksConfig config, InvTweaksSlotStore store, boolean inventory,
+            SortingMethod algorithm, int rowSize) {
+        super(null);
+        init(config, store, inventory, algorithm, rowSize);
+    }
+
+    private void init(InvTweaksConfig config, InvTweaksSlotStore store, boolean inventory, SortingMethod algorithm,
+            int rowSize) {
+
         // Init constants
 
         if (DEFAULT_LOCK_PRIORITIES == null) {
@@ -80,19 +152,12 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
 
         // Init attributes
 
-        this.containerMgr = new InvTweaksContainerSectionManager(mc, section);
-        this.size = containerMgr.getSize();
-        this.sortArmorParts = config.getProperty(InvTweaksConfig.PROP_ENABLE_AUTO_EQUIP_ARMOR)
-                .equals(InvTweaksConfig.VALUE_TRUE) && !isGuiInventoryCreative(getCurrentScreen()); // FIXME Armor parts
-        // disappear when
-        // sorting in
-        // creative mode
-        // while holding an
-        // item
+        this.store = store;
+        this.size = store.getSize();
 
         this.rules = config.getRules();
         this.tree = config.getTree();
-        if (section == ContainerSection.INVENTORY) {
+        if (inventory) {
             this.lockPriorities = config.getLockPriorities();
             this.frozenSlots = config.getFrozenSlots();
             this.algorithm = SortingMethod.INVENTORY;
@@ -107,9 +172,10 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
 
         this.rulePriority = new int[size];
         this.keywordOrder = new int[size];
+        this.sortKeys = new InvTweaksSortKey[size];
         for (int i = 0; i < size; i++) {
             this.rulePriority[i] = -1;
-            ItemStack stack = containerMgr.getItemStack(i);
+            ItemStack stack = store.getItemStack(i);
             if (stack != null) {
                 this.keywordOrder[i] = getItemOrder(stack);
             } else {
@@ -119,6 +185,11 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
     }
 
     public void sort() {
+        if (pendingSort != null) {
+            log.info("Already sorting, ignoring.");
+            return;
+        }
+
         long timer = System.nanoTime();
         InvTweaksContainerManager globalContainer = new InvTweaksContainerManager(mc);
 
@@ -138,12 +209,17 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
             } else if (algorithm == SortingMethod.INVENTORY) {
                 sortInventory(globalContainer);
             }
-            sortWithRules();
         }
 
-        //// Sort remaining
-        defaultSorting();
+        if (plannedSorting && algorithm != SortingMethod.EVEN_STACKS) {
+            sortPlanned(globalContainer, timer);
+        } else {
+            sortStacks();
+            completeSort(globalContainer, timer);
+        }
+    }
 
+    private void completeSort(InvTweaksContainerManager globalContainer, long timer) {
         if (log.isEnabled(InvTweaksConst.DEBUG)) {
             timer = System.nanoTime() - timer;
             log.info("Sorting done in " + timer + "ns");
@@ -160,12 +236,153 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
         InvTweaksMod.proxy.sortComplete();
     }
 
-    private void sortWithRules() {
+    /**
+     * Sorts the slot store alone: unlike {@link #sort()}, the held stack, crafting slots and armor parts are left
+     * untouched.
+     */
+    public void sortSection() {
+        if (algorithm == SortingMethod.EVEN_STACKS) {
+            sortEvenStacks();
+        }
+        sortStacks();
+    }
+
+    private void sortStacks() {
+        if (algorithm != SortingMethod.DEFAULT) {
+            sortWithRules();
+        }
+
+        //// Sort remaining
+        defaultSorting();
+    }
+
+    /**
+     * Applies the rules and the default sorting to a copy of the section on the planning thread, then on a later tick
+     * moves each stack straight to its final slot instead of clicking through all intermediate moves. The sort is
+     * dropped if the section changed meanwhile, and done directly if the plan can't be applied.
+     */
+    private void sortPlanned(InvTweaksContainerManager globalContainer, long timer) {
+        plannedContainer = globalContainer;
+        plannedTimer = timer;
+        initialRulePriority = rulePriority.clone();
+        initialKeywordOrder = keywordOrder.clone();
+        plannedContents = new ItemStack[size];
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = containerMgr.getItemStack(i);
+            plannedContents[i] = (stack != null) ? stack.copy() : null;
+        }
+        plannedHeldStack = (getHeldStack() != null) ? getHeldStack().copy() : null;
+
+        final InvTweaksSortingModel model = new InvTweaksSortingModel(
+                containerMgr,
+                !globalContainer.getEmptyUsableSlotNumbers(section).isEmpty());
+        store = model;
+
+        // The planning thread gets its own copies, so that a configuration reload can't change them meanwhile (the
+        // tree itself is replaced on reload, not changed)
+        rules = new Vector<InvTweaksConfigSortingRule>(rules);
+        lockPriorities = lockPriorities.clone();
+        frozenSlots = frozenSlots.clone();
+
+        pendingSort = this;
+        plan = getPlanner().submit(() -> {
+            sortStacks();
+            return model.getPlan();
+        });
+    }
+
+    /**
+     * Applies the pending sorting plan if it is ready. Called on every client tick.
+     */
+    public static void applyPendingPlan() {
+        InvTweaksHandlerSorting sort = pendingSort;
+        if (sort != null && sort.plan != null && sort.plan.isDone()) {
+            pendingSort = null;
+            sort.applyPlan();
+        }
+    }
+
+    /**
+     * Drops the pending sort, if any (when leaving the world...).
+     */
+    public static void cancelPendingPlan() {
+        InvTweaksHandlerSorting sort = pendingSort;
+        pendingSort = null;
+        if (sort != null && sort.plan != null) {
+            sort.plan.cancel(true);
+        }
+    }
+
+    private void applyPlan() {
+        InvTweaksContainerManager globalContainer = plannedContainer;
+        long timer = plannedTimer;
+        store = containerMgr;
+
+        InvTweaksSortingPlan result = null;
+        try {
+            result = plan.get();
+        } catch (InterruptedException | ExecutionException e) {
+            log.error("Failed to compute sorting plan", e);
+        }
+
+        if (!isUnchangedSincePlanning(globalContainer)) {
+            log.info("Container changed while planning the sort, aborting.");
+            InvTweaksMod.proxy.sortComplete();
+            return;
+        }
+
+        boolean applied = false;
+        if (result != null) {
+            log.info(
+                    "Applying sorting plan (" + result.getMergeCount()
+                            + " merges, "
+                            + result.getMoveCount()
+                            + " moves).");
+            applied = result.execute(globalContainer, section);
+        }
+        if (!applied) {
+            log.info("Sorting plan cannot be applied, sorting directly.");
+            rulePriority = initialRulePriority;
+            keywordOrder = initialKeywordOrder;
+            sortStacks();
+        }
+        completeSort(globalContainer, timer);
+    }
+
+    private boolean isUnchangedSincePlanning(InvTweaksContainerManager globalContainer) {
+        if (mc.thePlayer == null || mc.thePlayer.openContainer != globalContainer.getContainer()
+                || !ItemStack.areItemStacksEqual(plannedHeldStack, getHeldStack())) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!ItemStack.areItemStacksEqual(plannedContents[i], containerMgr.getItemStack(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ExecutorService getPlanner() {
+        if (planner == null) {
+            planner = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Inventory Tweaks sorting");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return planner;
+    }
+
+    void sortWithRules() {
         //// Apply rules
         log.info("Applying rules.");
 
+        computeRuleMatches();
+
         // Sorts rule by rule, themselves being already sorted by decreasing priority
-        for (InvTweaksConfigSortingRule rule : rules) {
+        for (int r = 0; r < rules.size(); r++) {
+            InvTweaksConfigSortingRule rule = rules.get(r);
+            BitSet matches = ruleMatches[r];
             int rulePriority = rule.getPriority();
 
             if (log.isEnabled(InvTweaksConst.DEBUG)) {
@@ -174,7 +391,7 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
 
             // For every item in the inventory
             for (int i = 0; i < size; i++) {
-                ItemStack from = containerMgr.getItemStack(i);
+                ItemStack from = store.getItemStack(i);
 
                 // If the rule is strong enough to move the item and it matches the item, move it
                 if (hasToBeMoved(i) && lockPriorities[i] < rulePriority) {
@@ -182,9 +399,7 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
                     if (rule.isNameRule()) {
                         shouldMoveItemToRule = from.getDisplayName().equalsIgnoreCase(rule.getKeyword());
                     } else {
-                        List<IItemTreeItem> fromItems = tree
-                                .getItems(Item.itemRegistry.getNameForObject(from.getItem()), from.getItemDamage());
-                        shouldMoveItemToRule = tree.matches(fromItems, rule.getKeyword());
+                        shouldMoveItemToRule = slotItems[i] != -1 && matches.get(slotItems[i]);
                     }
                     if (shouldMoveItemToRule) {
 
@@ -200,11 +415,7 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
                                 if (moveResult == k) {
                                     break;
                                 } else {
-                                    from = containerMgr.getItemStack(moveResult);
-                                    List<IItemTreeItem> fromItems = tree.getItems(
-                                            Item.itemRegistry.getNameForObject(from.getItem()),
-                                            from.getItemDamage());
-                                    if (!tree.matches(fromItems, rule.getKeyword())) {
+                                    if (slotItems[moveResult] == -1 || !matches.get(slotItems[moveResult])) {
                                         break;
                                     } else {
                                         stackToMove = moveResult;
@@ -228,6 +439,44 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
         }
     }
 
+    /**
+     * Matches every distinct item of the section against the rules, so that the tree is only looked up once per item
+     * and rule.
+     */
+    private void computeRuleMatches() {
+        InvTweaksIntMap itemIndexes = new InvTweaksIntMap(size);
+        List<List<IItemTreeItem>> treeItems = new ArrayList<List<IItemTreeItem>>();
+        slotItems = new int[size];
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = store.getItemStack(i);
+            if (stack != null) {
+                int itemId = InvTweaksItemIds.get(stack);
+                int index = itemIndexes.get(itemId);
+                if (index == InvTweaksIntMap.MISSING) {
+                    index = treeItems.size();
+                    itemIndexes.put(itemId, index);
+                    treeItems.add(tree.getItems(itemId));
+                }
+                slotItems[i] = index;
+            } else {
+                slotItems[i] = -1;
+            }
+        }
+
+        ruleMatches = new BitSet[rules.size()];
+        for (int r = 0; r < rules.size(); r++) {
+            InvTweaksConfigSortingRule rule = rules.get(r);
+            ruleMatches[r] = new BitSet(treeItems.size());
+            if (!rule.isNameRule()) {
+                for (int k = 0; k < treeItems.size(); k++) {
+                    if (tree.matches(treeItems.get(k), rule.getKeyword())) {
+                        ruleMatches[r].set(k);
+                    }
+                }
+            }
+        }
+    }
+
     private void sortInventory(InvTweaksContainerManager globalContainer) {
         //// Move items out of the crafting slots
         log.info("Handling crafting slots.");
@@ -259,7 +508,7 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
         //// + Move armor parts to the armor slots
         log.info("Merging stacks.");
         for (int i = size - 1; i >= 0; i--) {
-            ItemStack from = containerMgr.getItemStack(i);
+            ItemStack from = store.getItemStack(i);
             if (from != null) {
                 // Move armor parts
                 // Item
@@ -279,11 +528,11 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
         int j = 0;
         for (Integer lockPriority : lockPriorities) {
             if (lockPriority > 0) {
-                ItemStack to = containerMgr.getItemStack(j);
+                ItemStack to = store.getItemStack(j);
                 if (to != null && areItemsStackable(from, to)) {
                     move(i, j, Integer.MAX_VALUE);
                     markAsNotMoved(j);
-                    if (containerMgr.getItemStack(i) == null) {
+                    if (store.getItemStack(i) == null) {
                         break;
                     }
                 }
@@ -338,41 +587,41 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
         log.info("Distributing items.");
 
         // item and slot counts for each unique item
-        HashMap<Pair<String, Integer>, int[]> itemCounts = new HashMap<Pair<String, Integer>, int[]>();
+        int[] slotItemIds = new int[size];
+        InvTweaksIntMap itemIndexes = new InvTweaksIntMap(size);
+        List<int[]> itemCounts = new ArrayList<int[]>();
         for (int i = 0; i < size; i++) {
-            ItemStack stack = containerMgr.getItemStack(i);
+            ItemStack stack = store.getItemStack(i);
             if (stack != null) {
-                Pair<String, Integer> item = Pair
-                        .of(Item.itemRegistry.getNameForObject(stack.getItem()), stack.getItemDamage());
-                int[] count = itemCounts.get(item);
-                if (count == null) {
-                    int[] newCount = { stack.stackSize, 1 };
-                    itemCounts.put(item, newCount);
+                int itemId = slotItemIds[i] = InvTweaksItemIds.get(stack);
+                int index = itemIndexes.get(itemId);
+                if (index == InvTweaksIntMap.MISSING) {
+                    itemIndexes.put(itemId, itemCounts.size());
+                    itemCounts.add(new int[] { stack.stackSize, 1, itemId });
                 } else {
+                    int[] count = itemCounts.get(index);
                     count[0] += stack.stackSize; // amount of item
                     count[1]++; // slots with item
                 }
+            } else {
+                slotItemIds[i] = -1;
             }
         }
 
         // handle each unique item separately
-        for (Entry<Pair<String, Integer>, int[]> entry : itemCounts.entrySet()) {
-            Pair<String, Integer> item = entry.getKey();
-            int[] count = entry.getValue();
+        for (int[] count : itemCounts) {
+            int itemId = count[2];
             int numPerSlot = count[0] / count[1]; // totalNumber/numberOfSlots
 
             // skip hacked itemstacks that are larger than their max size
             // no idea why they would be here, but may as well account for them anyway
-            if (numPerSlot
-                    <= new ItemStack((Item) Item.itemRegistry.getObject(item.getLeft()), 1, 0).getMaxStackSize()) {
+            if (numPerSlot <= new ItemStack(InvTweaksItemIds.getItem(itemId), 1, 0).getMaxStackSize()) {
                 // linkedlists to store which stacks have too many/few items
                 LinkedList<Integer> smallStacks = new LinkedList<Integer>();
                 LinkedList<Integer> largeStacks = new LinkedList<Integer>();
                 for (int i = 0; i < size; i++) {
-                    ItemStack stack = containerMgr.getItemStack(i);
-                    if (stack != null
-                            && Pair.of(Item.itemRegistry.getNameForObject(stack.getItem()), stack.getItemDamage())
-                                    .equals(item)) {
+                    ItemStack stack = store.getItemStack(i);
+                    if (stack != null && slotItemIds[i] == itemId) {
                         int stackSize = stack.stackSize;
                         if (stackSize > numPerSlot) {
                             largeStacks.offer(i);
@@ -385,15 +634,14 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
                 // move items from stacks with too many to those with too little
                 while ((!smallStacks.isEmpty())) {
                     int largeIndex = largeStacks.peek();
-                    int largeSize = containerMgr.getItemStack(largeIndex).stackSize;
+                    int largeSize = store.getItemStack(largeIndex).stackSize;
                     int smallIndex = smallStacks.peek();
-                    int smallSize = containerMgr.getItemStack(smallIndex).stackSize;
-                    containerMgr
-                            .moveSome(largeIndex, smallIndex, Math.min(numPerSlot - smallSize, largeSize - numPerSlot));
+                    int smallSize = store.getItemStack(smallIndex).stackSize;
+                    store.moveSome(largeIndex, smallIndex, Math.min(numPerSlot - smallSize, largeSize - numPerSlot));
 
                     // update stack lists
-                    largeSize = containerMgr.getItemStack(largeIndex).stackSize;
-                    smallSize = containerMgr.getItemStack(smallIndex).stackSize;
+                    largeSize = store.getItemStack(largeIndex).stackSize;
+                    smallSize = store.getItemStack(smallIndex).stackSize;
                     if (largeSize == numPerSlot) {
                         largeStacks.remove();
                     }
@@ -405,8 +653,8 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
                 // put all leftover into one stack for easy removal
                 while (largeStacks.size() > 1) {
                     int largeIndex = largeStacks.poll();
-                    int largeSize = containerMgr.getItemStack(largeIndex).stackSize;
-                    containerMgr.moveSome(largeIndex, largeStacks.peek(), largeSize - numPerSlot);
+                    int largeSize = store.getItemStack(largeIndex).stackSize;
+                    store.moveSome(largeIndex, largeStacks.peek(), largeSize - numPerSlot);
                 }
             }
         }
@@ -417,42 +665,60 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
         }
     }
 
-    private void defaultSorting() {
+    /**
+     * Inserts the stacks that weren't moved by any rule one by one, each in the first slot that accepts it, and repeats
+     * with the stacks that got swapped out until nothing is left to move (up to 50 passes). The result depends on the
+     * order stacks are inserted in, not only on how they compare, so it can't be computed by sorting them at once.
+     * Slots still to process are flagged instead of kept in lists, so that taking one out doesn't cost a scan.
+     */
+    void defaultSorting() {
         log.info("Default sorting.");
 
-        ArrayList<Integer> remaining = new ArrayList<Integer>(), nextRemaining = new ArrayList<Integer>();
+        boolean[] remaining = new boolean[size];
+        int remainingCount = 0;
         for (int i = 0; i < size; i++) {
             if (hasToBeMoved(i)) {
-                remaining.add(i);
-                nextRemaining.add(i);
+                remaining[i] = true;
+                remainingCount++;
             }
         }
 
+        // Slots to process during the current pass, as flagged when it starts
+        int[] pass = new int[size];
         int iterations = 0;
-        while (remaining.size() > 0 && iterations++ < 50) {
-            for (int i : remaining) {
+        while (remainingCount > 0 && iterations++ < 50) {
+            int passSize = 0;
+            for (int i = 0; i < size; i++) {
+                if (remaining[i]) {
+                    pass[passSize++] = i;
+                }
+            }
+
+            for (int k = 0; k < passSize; k++) {
+                int i = pass[k];
                 if (hasToBeMoved(i)) {
                     for (int j = 0; j < size; j++) {
                         if (move(i, j, 1) != -1) {
-                            nextRemaining.remove((Integer) j);
+                            if (remaining[j]) {
+                                remaining[j] = false;
+                                remainingCount--;
+                            }
                             break;
                         }
                     }
-                } else {
-                    nextRemaining.remove((Integer) i);
+                } else if (remaining[i]) {
+                    remaining[i] = false;
+                    remainingCount--;
                 }
             }
-            remaining.clear();
-            remaining.addAll(nextRemaining);
         }
-        if (iterations == 100) {
+        if (remainingCount > 0) {
             log.warn("Sorting takes too long, aborting.");
         }
-
     }
 
     private boolean canMove(int i, int j, int priority) {
-        ItemStack from = containerMgr.getItemStack(i), to = containerMgr.getItemStack(j);
+        ItemStack from = store.getItemStack(i), to = store.getItemStack(j);
 
         if (from == null || frozenSlots[j] || frozenSlots[i] || lockPriorities[i] > priority) {
             return false;
@@ -496,8 +762,8 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
      * @return -1 if it failed, j if the stacks were merged into one, n if the j stack has been moved to the n slot.
      * @throws TimeoutException
      */
-    private int move(int i, int j, int priority) {
-        ItemStack from = containerMgr.getItemStack(i), to = containerMgr.getItemStack(j);
+    int move(int i, int j, int priority) {
+        ItemStack from = store.getItemStack(i), to = store.getItemStack(j);
 
         if (from == null || frozenSlots[j] || frozenSlots[i]) {
             return -1;
@@ -518,7 +784,8 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
                 keywordOrder[i] = -1;
                 rulePriority[j] = priority;
                 keywordOrder[j] = getItemOrder(from);
-                if (containerMgr.move(i, j)) {
+                if (store.move(i, j)) {
+                    swapSlotItems(i, j);
                     return j;
                 } else {
                     return -1;
@@ -531,23 +798,25 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
                     keywordOrder[j] = keywordOrder[i];
                     rulePriority[j] = priority;
                     rulePriority[i] = -1;
-                    boolean success = containerMgr.move(i, j);
+                    boolean success = store.move(i, j);
 
                     if (success) {
-                        ItemStack remains = containerMgr.getItemStack(i);
+                        swapSlotItems(i, j); // Remains of a merge are the same item anyway
+                        ItemStack remains = store.getItemStack(i);
 
                         if (remains != null) {
                             int dropSlot = i;
                             if (lockPriorities[j] > lockPriorities[i]) {
                                 for (int k = 0; k < size; k++) {
-                                    if (containerMgr.getItemStack(k) == null && lockPriorities[k] == 0) {
+                                    if (store.getItemStack(k) == null && lockPriorities[k] == 0) {
                                         dropSlot = k;
                                         break;
                                     }
                                 }
                             }
                             if (dropSlot != i) {
-                                if (!containerMgr.move(i, dropSlot)) {
+                                swapSlotItems(i, dropSlot);
+                                if (!store.move(i, dropSlot)) {
                                     // TODO: This is a potentially bad situation: One move succeeded, then the rest
                                     // failed.
                                     return -1;
@@ -570,6 +839,14 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
         return -1;
     }
 
+    private void swapSlotItems(int i, int j) {
+        if (slotItems != null) {
+            int item = slotItems[i];
+            slotItems[i] = slotItems[j];
+            slotItems[j] = item;
+        }
+    }
+
     private void markAsMoved(int i, int priority) {
         rulePriority[i] = priority;
     }
@@ -578,19 +855,29 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
         rulePriority[i] = -1;
     }
 
-    private boolean hasToBeMoved(int slot) {
-        return containerMgr.getItemStack(slot) != null && rulePriority[slot] == -1;
+    boolean hasToBeMoved(int slot) {
+        return store.getItemStack(slot) != null && rulePriority[slot] == -1;
     }
 
     private boolean isOrderedBefore(int i, int j) {
-        ItemStack iStack = containerMgr.getItemStack(i), jStack = containerMgr.getItemStack(j);
+        return InvTweaksSortKey.compare(getSortKey(i), getSortKey(j)) < 0;
+    }
 
-        return InvTweaks.getInstance().compareItems(iStack, jStack, keywordOrder[i], keywordOrder[j]) < 0;
+    private InvTweaksSortKey getSortKey(int i) {
+        ItemStack stack = store.getItemStack(i);
+        if (stack == null) {
+            return null;
+        }
+        InvTweaksSortKey key = sortKeys[i];
+        if (key == null || !key.isFor(stack, keywordOrder[i])) {
+            key = new InvTweaksSortKey(stack, keywordOrder[i]);
+            sortKeys[i] = key;
+        }
+        return key;
     }
 
     private int getItemOrder(ItemStack itemStack) {
-        List<IItemTreeItem> items = tree
-                .getItems(Item.itemRegistry.getNameForObject(itemStack.getItem()), itemStack.getItemDamage());
+        List<IItemTreeItem> items = tree.getItems(InvTweaksItemIds.get(itemStack));
         return (items != null && items.size() > 0) ? items.get(0).getOrder() : Integer.MAX_VALUE;
     }
 
@@ -733,15 +1020,13 @@ public class InvTweaksHandlerSorting extends InvTweaksObfuscation {
         Map<Integer, IItemTreeItem> itemSearch = new HashMap<Integer, IItemTreeItem>();
 
         for (int i = 0; i < size; i++) {
-            ItemStack stack = containerMgr.getItemStack(i);
+            ItemStack stack = store.getItemStack(i);
             if (stack != null) {
-                // TODO: ID Changes (Leaving as-is for now because WHY)
-                int itemSearchKey = Item.getIdFromItem(stack.getItem()) * 100000
-                        + ((stack.getMaxStackSize() != 1) ? stack.getItemDamage() : 0);
+                int itemSearchKey = InvTweaksItemIds
+                        .get(stack.getItem(), (stack.getMaxStackSize() != 1) ? stack.getItemDamage() : 0);
                 IItemTreeItem item = itemSearch.get(itemSearchKey);
                 if (item == null) {
-                    item = tree.getItems(Item.itemRegistry.getNameForObject(stack.getItem()), stack.getItemDamage())
-                            .get(0);
+                    item = tree.getItems(InvTweaksItemIds.get(stack)).get(0);
                     itemSearch.put(itemSearchKey, item);
                     stats.put(item, 1);
                 } else {
@@ -0,0 +1,75 @@
+package invtweaks;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Gives each item and damage value met during the session a small int ID, allocated in order from 0. This allows the
+ * sorting and refill code to compare and index items without building their registry names over and over.
+ *
+ * IDs are only valid for the current session, and must not be saved or sent over the network. They can be used from
+ * the planning thread of sorts.
+ */
+public class InvTweaksItemIds {
+
+    private static final Map<Item, InvTweaksIntMap> idsByItem = new IdentityHashMap<Item, InvTweaksIntMap>();
+
+    private static Item[] items = new Item[256];
+    private static String[] names = new String[256];
+    private static int[] damages = new int[256];
+    private static int count = 0;
+
+    public static synchronized int get(ItemStack stack) {
+        return get(stack.getItem(), stack.getItemDamage());
+    }
+
+    public static synchronized int get(Item item, int damage) {
+        InvTweaksIntMap ids = idsByItem.get(item);
+        if (ids == null) {
+            ids = new InvTweaksIntMap(4);
+            idsByItem.put(item, ids);
+        }
+
+        int id = ids.get(damage);
+        if (id == InvTweaksIntMap.MISSING) {
+            id = count++;
+            if (id == items.length) {
+                items = Arrays.copyOf(items, id * 2);
+                names = Arrays.copyOf(names, id * 2);
+                damages = Arrays.copyOf(damages, id * 2);
+            }
+            items[id] = item;
+            names[id] = Item.itemRegistry.getNameForObject(item);
+            damages[id] = damage;
+            ids.put(damage, id);
+        }
+        return id;
+    }
+
+    public static synchronized Item getItem(int id) {
+        return items[id];
+    }
+
+    /**
+     * @return The registry name of the item, or null if it isn't registered.
+     */
+    public static synchronized String getName(int id) {
+        return names[id];
+    }
+
+    public static synchronized int getDamage(int id) {
+        return damages[id];
+    }
+
+    /**
+     * @return The number of IDs given so far, which are all lower than it.
+     */
+    public static synchronized int getCount() {
+        return count;
+    }
+
+}
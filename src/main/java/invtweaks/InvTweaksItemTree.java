@@ -5,12 +5,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Random;
+import java.util.TreeSet;
 import java.util.Vector;
-import java.util.stream.Collectors;
 
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
@@ -25,7 +25,7 @@ import invtweaks.api.IItemTreeItem;
 
 /**
  * Contains the whole hierarchy of categories and items, as defined in the XML item tree. Is used to recognize keywords
- * and store item orders.
+ * and store item orders. Lookups may come from the planning thread of sorts, hence the synchronized methods.
  *
  * @author Jimeo Wan
  */
@@ -54,11 +54,35 @@ public class InvTweaksItemTree implements IItemTree {
 
     private String rootCategory;
 
+    /**
+     * Results of {@link #getItems(String, int)}, stored by ID then by damage value (as an index in
+     * {@link #cachedItems}). Cleared whenever an item is added.
+     */
+    private Map<String, InvTweaksIntMap> cachedItemIndexes = new HashMap<String, InvTweaksIntMap>();
+    private List<List<IItemTreeItem>> cachedItems = new ArrayList<List<IItemTreeItem>>();
+
+    /**
+     * Category in which each item has been added
+     */
+    private Map<IItemTreeItem, IItemTreeCategory> itemCategories = new IdentityHashMap<>();
+
+    /**
+     * Position of each category in a depth-first walk of the tree, as {position, position after its last
+     * sub-category}. Built on demand, and dropped whenever the tree changes.
+     */
+    private Map<IItemTreeCategory, int[]> categoryIntervals = null;
+
+    /**
+     * For each item, sorted positions of the categories that directly hold an item matching it. The item belongs to a
+     * category if one of them is within the category interval.
+     */
+    private Map<IItemTreeItem, int[]> itemPositions = null;
+
     public InvTweaksItemTree() {
         reset();
     }
 
-    public void reset() {
+    public synchronized void reset() {
 
         if (defaultItems == null) {
             defaultItems = new Vector<IItemTreeItem>();
@@ -70,6 +94,8 @@ public class InvTweaksItemTree implements IItemTree {
         categories.clear();
         itemsByName.clear();
         itemsById.clear();
+        itemCategories.clear();
+        clearItemsCache();
 
     }
 
@@ -81,7 +107,7 @@ public class InvTweaksItemTree implements IItemTree {
      * @param keyword
      */
     @Override
-    public boolean matches(List<IItemTreeItem> items, String keyword) {
+    public synchronized boolean matches(List<IItemTreeItem> items, String keyword) {
 
         if (items == null) {
             return false;
@@ -98,7 +124,7 @@ public class InvTweaksItemTree implements IItemTree {
         IItemTreeCategory category = getCategory(keyword);
         if (category != null) {
             for (IItemTreeItem item : items) {
-                if (category.contains(item)) {
+                if (isInCategory(item, category)) {
                     return true;
                 }
             }
@@ -177,30 +203,69 @@ public class InvTweaksItemTree implements IItemTree {
     }
 
     @Override
-    public boolean isItemUnknown(String id, int damage) {
+    public synchronized boolean isItemUnknown(String id, int damage) {
         return itemsById.get(id) == null;
     }
 
+    /**
+     * @return A new list of the items matching the given ID and damage value.
+     */
     @Override
     public List<IItemTreeItem> getItems(String id, int damage) {
+        return new ArrayList<IItemTreeItem>(getCachedItems(id, damage));
+    }
+
+    /**
+     * Same as {@link #getItems(String, int)}, without the copy: the list is shared and can't be modified.
+     */
+    synchronized List<IItemTreeItem> getCachedItems(String id, int damage) {
         if (id == null) {
-            return new ArrayList<IItemTreeItem>();
+            return Collections.emptyList();
+        }
+
+        InvTweaksIntMap itemIndexes = cachedItemIndexes.get(id);
+        if (itemIndexes != null) {
+            int index = itemIndexes.get(damage);
+            if (index != InvTweaksIntMap.MISSING) {
+                return cachedItems.get(index);
+            }
         }
 
-        List<IItemTreeItem> filteredItems = Optional.ofNullable((List<IItemTreeItem>) itemsById.get(id))
-                .orElseGet(Collections::emptyList).stream().filter(item -> item.matchesDamage(damage))
-                .collect(Collectors.toList());
+        List<IItemTreeItem> filteredItems = new ArrayList<IItemTreeItem>();
+        List<IItemTreeItem> items = itemsById.get(id);
+        if (items != null) {
+            for (IItemTreeItem item : items) {
+                if (item.matchesDamage(damage)) {
+                    filteredItems.add(item);
+                }
+            }
+        }
 
         // If there's no matching item, create new ones
         if (filteredItems.isEmpty()) {
             filteredItems.addAll(addUnrecognizedItem(id, damage));
         }
 
+        itemIndexes = cachedItemIndexes.get(id);
+        if (itemIndexes == null) {
+            itemIndexes = new InvTweaksIntMap(4);
+            cachedItemIndexes.put(id, itemIndexes);
+        }
+        itemIndexes.put(damage, cachedItems.size());
+        filteredItems = Collections.unmodifiableList(filteredItems);
+        cachedItems.add(filteredItems);
         return filteredItems;
     }
 
+    /**
+     * Same as {@link #getItems(String, int)}, for an item given by its {@link InvTweaksItemIds} ID.
+     */
+    List<IItemTreeItem> getItems(int itemId) {
+        return getCachedItems(InvTweaksItemIds.getName(itemId), InvTweaksItemIds.getDamage(itemId));
+    }
+
     @Override
-    public List<IItemTreeItem> getItems(String name) {
+    public synchronized List<IItemTreeItem> getItems(String name) {
         return itemsByName.get(name);
     }
 
@@ -210,7 +275,7 @@ public class InvTweaksItemTree implements IItemTree {
      * @return Order index
      */
     @Override
-    public int getItemOrder(String id, int damage) {
+    public synchronized int getItemOrder(String id, int damage) {
         if (id == null) {
             return 0;
         }
@@ -248,9 +313,10 @@ public class InvTweaksItemTree implements IItemTree {
     }
 
     @Override
-    public void setRootCategory(IItemTreeCategory category) {
+    public synchronized void setRootCategory(IItemTreeCategory category) {
         rootCategory = category.getName();
         categories.put(rootCategory, category);
+        clearCategoryIndex();
     }
 
     @Override
@@ -269,16 +335,18 @@ public class InvTweaksItemTree implements IItemTree {
     }
 
     @Override
-    public void addCategory(String parentCategory, IItemTreeCategory newCategory) throws NullPointerException {
+    public synchronized void addCategory(String parentCategory, IItemTreeCategory newCategory)
+            throws NullPointerException {
         // Build tree
         categories.get(parentCategory.toLowerCase()).addCategory(newCategory);
 
         // Register category
         categories.put(newCategory.getName(), newCategory);
+        clearCategoryIndex();
     }
 
     @Override
-    public void addItem(String parentCategory, IItemTreeItem newItem) throws NullPointerException {
+    public synchronized void addItem(String parentCategory, IItemTreeItem newItem) throws NullPointerException {
         // Build tree
         categories.get(parentCategory.toLowerCase()).addItem(newItem);
 
@@ -297,6 +365,126 @@ public class InvTweaksItemTree implements IItemTree {
             list.add(newItem);
             itemsById.put(newItem.getId(), list);
         }
+        itemCategories.put(newItem, categories.get(parentCategory.toLowerCase()));
+
+        clearItemsCache();
+        clearCategoryIndex();
+    }
+
+    private void clearItemsCache() {
+        if (!cachedItems.isEmpty()) {
+            cachedItemIndexes.clear();
+            cachedItems.clear();
+        }
+    }
+
+    /**
+     * Same as {@link IItemTreeCategory#contains}, without walking through the sub-categories.
+     */
+    private boolean isInCategory(IItemTreeItem item, IItemTreeCategory category) {
+        if (itemPositions == null) {
+            buildCategoryIndex();
+        }
+
+        int[] interval = categoryIntervals.get(category);
+        int[] positions = itemPositions.get(item);
+        if (interval == null || positions == null) {
+            return category.contains(item); // Not part of the tree
+        }
+        int k = Arrays.binarySearch(positions, interval[0]);
+        if (k < 0) {
+            k = -k - 1;
+        }
+        return k < positions.length && positions[k] < interval[1];
+    }
+
+    private void buildCategoryIndex() {
+        categoryIntervals = new IdentityHashMap<IItemTreeCategory, int[]>();
+        itemPositions = new IdentityHashMap<IItemTreeItem, int[]>();
+        IItemTreeCategory root = getRootCategory();
+        if (root != null && indexCategory(root, 0) == -1) {
+            // A category appears twice, so it can't be described by a single interval
+            categoryIntervals.clear();
+            return;
+        }
+        for (Vector<IItemTreeItem> items : itemsById.values()) {
+            indexItems(items);
+        }
+    }
+
+    /**
+     * @return The position after the category and all its sub-categories, or -1 if the category has already been
+     *         seen.
+     */
+    private int indexCategory(IItemTreeCategory category, int position) {
+        if (categoryIntervals.containsKey(category)) {
+            return -1;
+        }
+        int[] interval = { position, position + 1 };
+        categoryIntervals.put(category, interval);
+        for (IItemTreeCategory subCategory : category.getSubCategories()) {
+            interval[1] = indexCategory(subCategory, interval[1]);
+            if (interval[1] == -1) {
+                return -1;
+            }
+        }
+        return interval[1];
+    }
+
+    /**
+     * Finds the categories matching each item sharing a same ID. Items with a single damage value are grouped by value,
+     * to avoid comparing every pair of items of IDs with many variants.
+     *
+     * @param items All items of an ID
+     */
+    private void indexItems(List<IItemTreeItem> items) {
+        List<Integer> wildcardPositions = new ArrayList<Integer>();
+        Map<Integer, List<Integer>> damagePositions = new HashMap<Integer, List<Integer>>();
+        List<IItemTreeItem> otherItems = new ArrayList<IItemTreeItem>();
+        for (IItemTreeItem item : items) {
+            int[] interval = categoryIntervals.get(itemCategories.get(item));
+            if (interval == null) {
+                continue;
+            }
+            if (item instanceof InvTweaksItemTreeItem && item.getDamage() == InvTweaksConst.DAMAGE_WILDCARD) {
+                wildcardPositions.add(interval[0]);
+            } else if (item instanceof InvTweaksItemTreeItem
+                    && item.getDamage() == ((InvTweaksItemTreeItem) item).getDamageMax()) {
+                List<Integer> positions = damagePositions.get(item.getDamage());
+                if (positions == null) {
+                    positions = new ArrayList<Integer>();
+                    damagePositions.put(item.getDamage(), positions);
+                }
+                positions.add(interval[0]);
+            } else {
+                otherItems.add(item);
+            }
+        }
+
+        for (IItemTreeItem item : items) {
+            TreeSet<Integer> positions = new TreeSet<Integer>(wildcardPositions);
+            List<Integer> sameDamagePositions = damagePositions.get(item.getDamage());
+            if (sameDamagePositions != null) {
+                positions.addAll(sameDamagePositions);
+            }
+            for (IItemTreeItem otherItem : otherItems) {
+                if (otherItem.equals(item)) {
+                    positions.add(categoryIntervals.get(itemCategories.get(otherItem))[0]);
+                }
+            }
+
+            int[] sortedPositions = new int[positions.size()];
+            int k = 0;
+            for (int position : positions) {
+                sortedPositions[k++] = position;
+            }
+            itemPositions.put(item, sortedPositions);
+        }
+    }
+
+    private void clearCategoryIndex() {
+        categoryIntervals = null;
+        itemPositions = null;
     }
 
     @javax.annotation.Nonnull
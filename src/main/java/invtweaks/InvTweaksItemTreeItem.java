@@ -62,6 +62,13 @@ public class InvTweaksItemTreeItem implements IItemTreeItem {
         return damageMin;
     }
 
+    /**
+     * @return The highest value of the item variant, or InvTweaksConst.DAMAGE_WILDCARD
+     */
+    public int getDamageMax() {
+        return damageMax;
+    }
+
     @Override
     public boolean matchesDamage(int damage) {
         if (damage == InvTweaksConst.DAMAGE_WILDCARD || this.damageMin == InvTweaksConst.DAMAGE_WILDCARD
@@ -1,6 +1,16 @@
 package invtweaks;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -10,7 +20,9 @@ import javax.xml.parsers.SAXParserFactory;
 
 import net.minecraftforge.common.MinecraftForge;
 
+import org.apache.logging.log4j.Logger;
 import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
@@ -19,10 +31,18 @@ import invtweaks.api.IItemTreeListener;
 /**
  * Loads the item tree by parsing the XML file.
  *
+ * The changes made to the tree while parsing are also saved in a binary cache, along with a hash of the XML file. As
+ * long as the file doesn't change, they are replayed from the cache instead of parsing the file again. Ore dictionary
+ * entries are registered again on each load, as they can differ from one launch to another.
+ *
+ * Checking the tree version only reads the cache header, or the root element of the file.
+ *
  * @author Jimeo Wan
  */
 public class InvTweaksItemTreeLoader extends DefaultHandler {
 
+    private static final Logger log = InvTweaks.log;
+
     private final static String ATTR_ID = "id";
     private final static String ATTR_DAMAGE = "damage";
     private final static String ATTR_RANGE_DMIN = "dmin"; // Damage ranges
@@ -30,28 +50,144 @@ public class InvTweaksItemTreeLoader extends DefaultHandler {
     private final static String ATTR_OREDICT_NAME = "oreDictName"; // OreDictionary names
     private final static String ATTR_TREE_VERSION = "treeVersion";
 
+    // Cache contents
+    private final static int CACHE_FORMAT = 2; // To be increased whenever the contents below change
+    private final static byte CACHE_END = 0;
+    private final static byte CACHE_ROOT_CATEGORY = 1;
+    private final static byte CACHE_CATEGORY = 2;
+    private final static byte CACHE_ITEM = 3;
+    private final static byte CACHE_ORE = 4;
+
     private static InvTweaksItemTree tree;
 
     private static String treeVersion;
     private static int itemOrder;
     private static LinkedList<String> categoryStack;
 
+    /**
+     * Whether the parsing stops as soon as the tree version is known
+     */
+    private static boolean versionOnly;
+
+    private static int categoryCount;
+    private static int itemCount;
+    private static int oreCount;
+
+    /**
+     * Changes made to the tree while parsing, null if they aren't recorded
+     */
+    private static DataOutputStream cacheOutput;
+
     private static boolean treeLoaded = false;
     private static final List<IItemTreeListener> onLoadListeners = new ArrayList<IItemTreeListener>();
 
+    /**
+     * Outcome of a tree load.
+     */
+    public static class LoadResult {
+
+        private final InvTweaksItemTree tree;
+        private final String version;
+        private final boolean fromCache;
+        private final int categoryCount;
+        private final int itemCount;
+        private final int oreCount;
+        private final long duration;
+
+        LoadResult(InvTweaksItemTree tree, String version, boolean fromCache, int categoryCount, int itemCount,
+                int oreCount, long duration) {
+            this.tree = tree;
+            this.version = version;
+            this.fromCache = fromCache;
+            this.categoryCount = categoryCount;
+            this.itemCount = itemCount;
+            this.oreCount = oreCount;
+            this.duration = duration;
+        }
+
+        public InvTweaksItemTree getTree() {
+            return tree;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * @return true if the tree has been built from the cache instead of the XML file.
+         */
+        public boolean isFromCache() {
+            return fromCache;
+        }
+
+        public int getCategoryCount() {
+            return categoryCount;
+        }
+
+        public int getItemCount() {
+            return itemCount;
+        }
+
+        /**
+         * @return The number of ore dictionary names registered.
+         */
+        public int getOreCount() {
+            return oreCount;
+        }
+
+        /**
+         * @return The loading time in milliseconds.
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        public String toString() {
+            return "Item tree " + version + " loaded from " + (fromCache ? "cache" : "file") + " in " + duration
+                    + "ms (" + categoryCount + " categories, " + itemCount + " items, " + oreCount + " ore names)";
+        }
+    }
+
+    /**
+     * Thrown to stop the parsing once the tree version has been read
+     */
+    private static class VersionFound extends SAXException {
+
+        private static final long serialVersionUID = 1L;
+    }
+
     private static void init() {
         treeVersion = null;
         tree = new InvTweaksItemTree();
         itemOrder = 0;
         categoryStack = new LinkedList<String>();
+        versionOnly = false;
+        categoryCount = 0;
+        itemCount = 0;
+        oreCount = 0;
+        cacheOutput = null;
     }
 
     public synchronized static InvTweaksItemTree load(File file) throws Exception {
-        init();
+        return loadWithResult(file).getTree();
+    }
 
-        SAXParserFactory parserFactory = SAXParserFactory.newInstance();
-        SAXParser parser = parserFactory.newSAXParser();
-        parser.parse(file, new InvTweaksItemTreeLoader());
+    /**
+     * Same as {@link #load}, also telling how the tree was loaded.
+     */
+    public synchronized static LoadResult loadWithResult(File file) throws Exception {
+        long startTime = System.nanoTime();
+        init();
+        boolean fromCache = parse(file);
+        LoadResult result = new LoadResult(
+                tree,
+                treeVersion,
+                fromCache,
+                categoryCount,
+                itemCount,
+                oreCount,
+                (System.nanoTime() - startTime) / 1000000);
+        log.info(result);
 
         // Tree loaded event
         synchronized (onLoadListeners) {
@@ -63,18 +199,12 @@ public class InvTweaksItemTreeLoader extends DefaultHandler {
 
         MinecraftForge.EVENT_BUS.register(tree);
 
-        return tree;
+        return result;
     }
 
     public synchronized static boolean isValidVersion(File file) throws Exception {
-        init();
-
         if (file.exists()) {
-            treeVersion = null;
-            SAXParserFactory parserFactory = SAXParserFactory.newInstance();
-            SAXParser parser = parserFactory.newSAXParser();
-            parser.parse(file, new InvTweaksItemTreeLoader());
-            return InvTweaksConst.TREE_VERSION.equals(treeVersion);
+            return InvTweaksConst.TREE_VERSION.equals(readVersion(file));
         } else {
             return false;
         }
@@ -92,6 +222,206 @@ public class InvTweaksItemTreeLoader extends DefaultHandler {
         return onLoadListeners.remove(listener);
     }
 
+    /**
+     * Reads the tree version, without building the tree.
+     */
+    private static String readVersion(File file) throws Exception {
+        byte[] contents = readFile(file);
+        String hash = computeHash(contents);
+
+        // From the cache header
+        File cacheFile = InvTweaksConst.CONFIG_TREE_CACHE_FILE;
+        if (cacheFile.exists()) {
+            DataInputStream input = new DataInputStream(new FileInputStream(cacheFile));
+            try {
+                if (input.readInt() == CACHE_FORMAT && hash.equals(input.readUTF())) {
+                    return readString(input);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to read item tree cache: " + e.getMessage());
+            } finally {
+                input.close();
+            }
+        }
+
+        // From the root element, which is always read before touching the tree
+        String loadedVersion = treeVersion;
+        treeVersion = null;
+        versionOnly = true;
+        try {
+            parseXml(file, contents);
+        } catch (VersionFound e) {
+            // Stopped on purpose
+        } finally {
+            versionOnly = false;
+        }
+        String version = treeVersion;
+        treeVersion = loadedVersion;
+        return version;
+    }
+
+    /**
+     * Builds the tree from the cache if it matches the file, else from the file itself, refreshing the cache.
+     *
+     * @return true if the cache has been used.
+     */
+    private static boolean parse(File file) throws Exception {
+        byte[] contents = readFile(file);
+        String hash = computeHash(contents);
+
+        if (loadCache(InvTweaksConst.CONFIG_TREE_CACHE_FILE, hash)) {
+            return true;
+        }
+        init(); // In case the cache was only partly read
+
+        ByteArrayOutputStream cacheBytes = new ByteArrayOutputStream();
+        cacheOutput = new DataOutputStream(cacheBytes);
+        parseXml(file, contents);
+
+        if (cacheOutput != null) {
+            cacheOutput.writeByte(CACHE_END);
+            cacheOutput.close();
+            cacheOutput = null;
+
+            // The header needs the version, only known once parsed
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(headerBytes);
+            header.writeInt(CACHE_FORMAT);
+            header.writeUTF(hash);
+            writeString(header, treeVersion);
+            cacheBytes.writeTo(header);
+            header.close();
+            saveCache(InvTweaksConst.CONFIG_TREE_CACHE_FILE, headerBytes.toByteArray());
+        }
+        return false;
+    }
+
+    private static void parseXml(File file, byte[] contents) throws Exception {
+        InputSource source = new InputSource(new ByteArrayInputStream(contents));
+        source.setSystemId(file.toURI().toString());
+        SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+        SAXParser parser = parserFactory.newSAXParser();
+        parser.parse(source, new InvTweaksItemTreeLoader());
+    }
+
+    /**
+     * @return true if the cache matched the given file hash and has been loaded.
+     */
+    private static boolean loadCache(File cacheFile, String hash) {
+        if (!cacheFile.exists()) {
+            return false;
+        }
+
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(readFile(cacheFile)));
+            if (input.readInt() != CACHE_FORMAT || !hash.equals(input.readUTF())) {
+                return false;
+            }
+            treeVersion = readString(input);
+
+            byte type;
+            while ((type = input.readByte()) != CACHE_END) {
+                switch (type) {
+                    case CACHE_ROOT_CATEGORY:
+                        addRootCategory(readString(input));
+                        break;
+                    case CACHE_CATEGORY:
+                        addCategory(readString(input), readString(input));
+                        break;
+                    case CACHE_ITEM:
+                        addItem(
+                                readString(input),
+                                readString(input),
+                                readString(input),
+                                input.readInt(),
+                                input.readInt(),
+                                input.readInt());
+                        break;
+                    case CACHE_ORE:
+                        registerOre(readString(input), readString(input), readString(input), input.readInt());
+                        break;
+                    default:
+                        throw new IOException("Unknown entry type " + type);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to read item tree cache: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void saveCache(File cacheFile, byte[] contents) {
+        try {
+            OutputStream output = new FileOutputStream(cacheFile);
+            try {
+                output.write(contents);
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write item tree cache: " + e.getMessage());
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] contents = new byte[(int) file.length()];
+        InputStream input = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < contents.length) {
+                int n = input.read(contents, read, contents.length - read);
+                if (n == -1) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                read += n;
+            }
+        } finally {
+            input.close();
+        }
+        return contents;
+    }
+
+    private static String computeHash(byte[] contents) throws Exception {
+        StringBuilder hash = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-1").digest(contents)) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    /**
+     * Records a change made to the tree. Recording stops if anything goes wrong, in which case no cache is saved.
+     */
+    private static void record(byte type, Object... values) {
+        if (cacheOutput != null) {
+            try {
+                cacheOutput.writeByte(type);
+                for (Object value : values) {
+                    if (value instanceof Integer) {
+                        cacheOutput.writeInt((Integer) value);
+                    } else {
+                        writeString(cacheOutput, (String) value);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Failed to record item tree cache: " + e.getMessage());
+                cacheOutput = null;
+            }
+        }
+    }
+
     @Override
     public synchronized void startElement(String uri, String localName, String name, Attributes attributes)
             throws SAXException {
@@ -107,13 +437,16 @@ public class InvTweaksItemTreeLoader extends DefaultHandler {
             if (treeVersion == null) {
                 treeVersion = newTreeVersion;
             }
+            if (versionOnly) {
+                throw new VersionFound();
+            }
 
             if (categoryStack.isEmpty()) {
                 // Root category
-                tree.setRootCategory(new InvTweaksItemTreeCategory(name));
+                addRootCategory(name);
             } else {
                 // Normal category
-                tree.addCategory(categoryStack.getLast(), new InvTweaksItemTreeCategory(name));
+                addCategory(categoryStack.getLast(), name);
             }
 
             // Handle damage ranges
@@ -121,14 +454,13 @@ public class InvTweaksItemTreeLoader extends DefaultHandler {
                 String id = attributes.getValue(ATTR_ID);
                 int rangeDMin = Integer.parseInt(rangeDMinAttr);
                 int rangeDMax = Integer.parseInt(attributes.getValue(ATTR_RANGE_DMAX));
-                tree.addItem(
+                addItem(
                         name,
-                        new InvTweaksItemTreeItem(
-                                (name + id + "-" + rangeDMin + "-" + rangeDMax).toLowerCase(),
-                                id,
-                                rangeDMin,
-                                rangeDMax,
-                                itemOrder++));
+                        (name + id + "-" + rangeDMin + "-" + rangeDMax).toLowerCase(),
+                        id,
+                        rangeDMin,
+                        rangeDMax,
+                        itemOrder++);
             }
 
             categoryStack.add(name);
@@ -141,11 +473,9 @@ public class InvTweaksItemTreeLoader extends DefaultHandler {
             if (attributes.getValue(ATTR_DAMAGE) != null) {
                 damage = Integer.parseInt(attributes.getValue(ATTR_DAMAGE));
             }
-            tree.addItem(
-                    categoryStack.getLast(),
-                    new InvTweaksItemTreeItem(name.toLowerCase(), id, damage, itemOrder++));
+            addItem(categoryStack.getLast(), name.toLowerCase(), id, damage, damage, itemOrder++);
         } else if (oreDictNameAttr != null) {
-            tree.registerOre(categoryStack.getLast(), name.toLowerCase(), oreDictNameAttr, itemOrder++);
+            registerOre(categoryStack.getLast(), name.toLowerCase(), oreDictNameAttr, itemOrder++);
         }
     }
 
@@ -156,4 +486,28 @@ public class InvTweaksItemTreeLoader extends DefaultHandler {
         }
     }
 
+    private static void addRootCategory(String name) {
+        tree.setRootCategory(new InvTweaksItemTreeCategory(name));
+        categoryCount++;
+        record(CACHE_ROOT_CATEGORY, name);
+    }
+
+    private static void addCategory(String parentCategory, String name) {
+        tree.addCategory(parentCategory, new InvTweaksItemTreeCategory(name));
+        categoryCount++;
+        record(CACHE_CATEGORY, parentCategory, name);
+    }
+
+    private static void addItem(String category, String name, String id, int damageMin, int damageMax, int order) {
+        tree.addItem(category, new InvTweaksItemTreeItem(name, id, damageMin, damageMax, order));
+        itemCount++;
+        record(CACHE_ITEM, category, name, id, damageMin, damageMax, order);
+    }
+
+    private static void registerOre(String category, String name, String oreName, int order) {
+        tree.registerOre(category, name, oreName, order);
+        oreCount++;
+        record(CACHE_ORE, category, name, oreName, order);
+    }
+
 }
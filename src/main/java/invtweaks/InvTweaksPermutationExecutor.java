@@ -0,0 +1,218 @@
+package invtweaks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.item.ItemStack;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import invtweaks.api.container.ContainerSection;
+
+/**
+ * Rearranges the stacks of a section according to a permutation, carrying the held stack from slot to slot: picking
+ * up the first stack, then every click puts the held stack down and picks up the next one. A chain or cycle of k moves
+ * thus only takes k+1 clicks.
+ *
+ * When the held stack would merge with the stack it has to replace, it is put aside in a free slot for the time of
+ * the cycle.
+ */
+public class InvTweaksPermutationExecutor {
+
+    private final InvTweaksContainerManager containerMgr;
+    private final ContainerSection section;
+    private final ItemStack[] stacks;
+
+    /**
+     * Destination of the stack stored in each slot, -1 if the slot is empty
+     */
+    private final int[] destinations;
+
+    /**
+     * Slot from which each slot receives its stack, -1 if none
+     */
+    private final int[] sources;
+
+    /**
+     * @param stacks       The contents of the section before the permutation
+     * @param destinations The destination of each stack, -1 for empty slots
+     */
+    public InvTweaksPermutationExecutor(InvTweaksContainerManager containerMgr, ContainerSection section,
+            ItemStack[] stacks, int[] destinations) {
+        this.containerMgr = containerMgr;
+        this.section = section;
+        this.stacks = stacks;
+        this.destinations = destinations.clone();
+        this.sources = new int[destinations.length];
+
+        // No need to move a stack in place of an identical one,
+        // it can go straight to where that other stack is headed
+        for (int i = 0; i < destinations.length; i++) {
+            int to = this.destinations[i];
+            while (to != -1 && to != i && stacks[to] != null && ItemStack.areItemStacksEqual(stacks[i], stacks[to])) {
+                this.destinations[i] = this.destinations[to];
+                this.destinations[to] = to;
+                to = this.destinations[i];
+            }
+        }
+
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = -1;
+        }
+        for (int i = 0; i < destinations.length; i++) {
+            if (isMoved(i)) {
+                sources[this.destinations[i]] = i;
+            }
+        }
+    }
+
+    /**
+     * @return false if there are not enough free slots to put aside stacks that would merge.
+     */
+    public boolean canExecute() {
+        int freeSlots = -1;
+        boolean[] visited = new boolean[destinations.length];
+        for (int start : getStartSlots()) {
+            if (visited[start]) {
+                continue;
+            }
+            int collisions = 0;
+            visited[start] = true;
+            for (int to = destinations[start]; to != start && isMoved(to); to = destinations[to]) {
+                visited[to] = true;
+                if (isCollision(to)) {
+                    collisions++;
+                }
+            }
+            if (collisions > 0) {
+                if (freeSlots == -1) {
+                    freeSlots = getFreeSlots().size();
+                }
+                if (collisions > freeSlots) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public int getClickCount() {
+        int clicks = 0;
+        boolean[] visited = new boolean[destinations.length];
+        for (int start : getStartSlots()) {
+            if (visited[start]) {
+                continue;
+            }
+            visited[start] = true;
+            clicks += 2;
+            for (int to = destinations[start]; to != start && isMoved(to); to = destinations[to]) {
+                visited[to] = true;
+                clicks += isCollision(to) ? 4 : 1;
+            }
+        }
+        return clicks;
+    }
+
+    public void execute() {
+        List<Pair<ContainerSection, Integer>> freeSlots = null;
+        List<Integer> putAside = new ArrayList<Integer>();
+        boolean[] visited = new boolean[destinations.length];
+
+        for (int start : getStartSlots()) {
+            if (visited[start]) {
+                continue;
+            }
+            visited[start] = true;
+            containerMgr.leftClick(section, start);
+
+            int to = destinations[start];
+            while (to != start && isMoved(to)) {
+                visited[to] = true;
+                if (isCollision(to)) {
+                    if (freeSlots == null) {
+                        freeSlots = getFreeSlots();
+                    }
+                    Pair<ContainerSection, Integer> freeSlot = freeSlots.get(putAside.size());
+                    containerMgr.leftClick(freeSlot.getLeft(), freeSlot.getRight());
+                    putAside.add(to);
+                }
+                containerMgr.leftClick(section, to);
+                to = destinations[to];
+            }
+            containerMgr.leftClick(section, to);
+
+            for (int i = 0; i < putAside.size(); i++) {
+                Pair<ContainerSection, Integer> freeSlot = freeSlots.get(i);
+                containerMgr.move(freeSlot.getLeft(), freeSlot.getRight(), section, putAside.get(i));
+            }
+            putAside.clear();
+        }
+    }
+
+    private boolean isMoved(int i) {
+        return destinations[i] != -1 && destinations[i] != i;
+    }
+
+    /**
+     * @return true if the stack brought to the given slot would merge with the one it replaces.
+     */
+    private boolean isCollision(int i) {
+        ItemStack held = stacks[sources[i]], replaced = stacks[i];
+        return held.getItem() == replaced.getItem() && held.getItemDamage() == replaced.getItemDamage()
+                && ItemStack.areItemStackTagsEqual(held, replaced);
+    }
+
+    /**
+     * Chains are started from their first stack (whose slot ends up empty), then cycles from a slot where a merge
+     * would occur if there is one, since the stack brought back to the starting slot never collides.
+     */
+    private List<Integer> getStartSlots() {
+        List<Integer> startSlots = new ArrayList<Integer>();
+        for (int i = 0; i < destinations.length; i++) {
+            if (isMoved(i) && sources[i] == -1) {
+                startSlots.add(i);
+            }
+        }
+
+        boolean[] covered = new boolean[destinations.length];
+        for (int i : startSlots) {
+            for (int to = i; isMoved(to); to = destinations[to]) {
+                covered[to] = true;
+            }
+        }
+        for (int i = 0; i < destinations.length; i++) {
+            if (isMoved(i) && !covered[i]) {
+                int start = i;
+                for (int to = destinations[i]; to != i; to = destinations[to]) {
+                    covered[to] = true;
+                    if (start == i && isCollision(to)) {
+                        start = to;
+                    }
+                }
+                covered[i] = true;
+                startSlots.add(start);
+            }
+        }
+        return startSlots;
+    }
+
+    /**
+     * @return Slots that stay empty during the whole permutation.
+     */
+    private List<Pair<ContainerSection, Integer>> getFreeSlots() {
+        List<Pair<ContainerSection, Integer>> freeSlots = new ArrayList<Pair<ContainerSection, Integer>>();
+        for (int i = 0; i < destinations.length; i++) {
+            if (destinations[i] == -1 && sources[i] == -1) {
+                freeSlots.add(Pair.of(section, i));
+            }
+        }
+        for (int slotNumber : containerMgr.getEmptyUsableSlotNumbers(section)) {
+            ContainerSection slotSection = containerMgr.getSlotSection(slotNumber);
+            if (slotSection != null) {
+                freeSlots.add(Pair.of(slotSection, containerMgr.getSlotIndex(slotNumber)));
+            }
+        }
+        return freeSlots;
+    }
+
+}
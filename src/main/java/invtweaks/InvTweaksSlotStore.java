@@ -0,0 +1,42 @@
+package invtweaks;
+
+import net.minecraft.item.ItemStack;
+
+/**
+ * A section of slots that can be clicked on, following the rules of vanilla's Container.slotClick(): a left click picks
+ * up, puts down, merges or swaps the whole stack, a right click picks up half a stack or puts down a single item.
+ *
+ * Implemented by {@link InvTweaksContainerSectionManager} for actual containers, and by {@link InvTweaksSortingModel}
+ * to work on a copy of them (or on no game at all).
+ */
+public interface InvTweaksSlotStore {
+
+    int getSize();
+
+    /**
+     * @return The stack in the given slot, or null.
+     */
+    ItemStack getItemStack(int index);
+
+    /**
+     * @return The stack attached to the cursor, or null.
+     */
+    ItemStack getHeldStack();
+
+    void click(int index, boolean rightClick);
+
+    /**
+     * Moves a stack to another slot, merging or swapping it with the destination stack if needed.
+     *
+     * @return false if the source slot is empty or if the stack cannot be moved.
+     */
+    boolean move(int srcIndex, int destIndex);
+
+    /**
+     * Moves some items to another slot.
+     *
+     * @return false if the items cannot be moved.
+     */
+    boolean moveSome(int srcIndex, int destIndex, int amount);
+
+}
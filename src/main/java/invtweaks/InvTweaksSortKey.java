@@ -0,0 +1,136 @@
+package invtweaks;
+
+import java.util.Map;
+
+import net.minecraft.enchantment.EnchantmentHelper;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Everything stacks are compared on when sorting, read once from the stack instead of decoding its NBT on every
+ * comparison. Comparing keys gives the same order as {@link InvTweaks#compareItems(ItemStack, ItemStack)}. Names and
+ * enchantments are only read the first time stacks of the same item are compared, so a single comparison costs no more
+ * than comparing the stacks directly.
+ */
+public class InvTweaksSortKey implements Comparable<InvTweaksSortKey> {
+
+    private final ItemStack stack;
+    private final int order;
+    private final Item item;
+    private final int stackSize;
+
+    private boolean registryNameRead = false;
+    private String registryName;
+
+    private boolean detailsRead = false;
+    private String displayName;
+    private int enchantCount;
+    private int maxEnchantId;
+    private int maxEnchantLevel;
+    private int damage;
+    private boolean damageable;
+
+    /**
+     * @param order The keyword order of the stack, -1 if it isn't sorted by keyword
+     */
+    public InvTweaksSortKey(ItemStack stack, int order) {
+        this.stack = stack;
+        this.order = order;
+        this.item = stack.getItem();
+        this.stackSize = stack.stackSize;
+    }
+
+    private String getRegistryName() {
+        if (!registryNameRead) {
+            registryName = InvTweaksItemIds.getName(InvTweaksItemIds.get(stack));
+            registryNameRead = true;
+        }
+        return registryName;
+    }
+
+    private void readDetails() {
+        if (detailsRead) {
+            return;
+        }
+        detailsRead = true;
+        displayName = stack.hasDisplayName() ? stack.getDisplayName() : null;
+        damage = stack.getItemDamage();
+        damageable = stack.isItemStackDamageable();
+
+        @SuppressWarnings("unchecked")
+        Map<Integer, Integer> enchants = EnchantmentHelper.getEnchantments(stack);
+        int enchMaxId = 0, enchMaxLvl = 0;
+        for (Map.Entry<Integer, Integer> ench : enchants.entrySet()) {
+            if (ench.getValue() > enchMaxLvl) {
+                enchMaxId = ench.getKey();
+                enchMaxLvl = ench.getValue();
+            } else if (ench.getValue() == enchMaxLvl && ench.getKey() > enchMaxId) {
+                enchMaxId = ench.getKey();
+            }
+        }
+        enchantCount = enchants.size();
+        maxEnchantId = enchMaxId;
+        maxEnchantLevel = enchMaxLvl;
+    }
+
+    /**
+     * @return true if the key still describes the stack. Stacks only change in size while sorting.
+     */
+    public boolean isFor(ItemStack stack, int order) {
+        return this.stack == stack && this.stackSize == stack.stackSize && this.order == order;
+    }
+
+    @Override
+    public int compareTo(InvTweaksSortKey o) {
+        return compare(this, o);
+    }
+
+    /**
+     * @param i The key of a stack, or null for an empty slot
+     * @param j The key of a stack, or null for an empty slot
+     */
+    public static int compare(InvTweaksSortKey i, InvTweaksSortKey j) {
+        if (j == null) {
+            return -1;
+        } else if (i == null || i.order == -1) {
+            return 1;
+        } else if (i.order != j.order) {
+            return i.order - j.order;
+        } else if (i.item != j.item) {
+            // Items of same keyword orders can have different IDs,
+            // in the case of categories defined by a range of IDs
+            String nameI = i.getRegistryName(), nameJ = j.getRegistryName();
+            if (nameI == null) {
+                return (nameJ == null) ? 0 : -1;
+            } else {
+                return (nameJ == null) ? 1 : nameI.compareTo(nameJ);
+            }
+        }
+
+        i.readDetails();
+        j.readDetails();
+
+        if (i.displayName != null || j.displayName != null) {
+            if (i.displayName == null) {
+                return -1;
+            } else if (j.displayName == null) {
+                return 1;
+            } else if (!i.displayName.equals(j.displayName)) {
+                return i.displayName.compareTo(j.displayName);
+            }
+        }
+
+        if (i.enchantCount != j.enchantCount) {
+            return j.enchantCount - i.enchantCount;
+        } else if (i.maxEnchantId != j.maxEnchantId) {
+            return j.maxEnchantId - i.maxEnchantId;
+        } else if (i.maxEnchantLevel != j.maxEnchantLevel) {
+            return j.maxEnchantLevel - i.maxEnchantLevel;
+        } else if (i.damage != j.damage) {
+            return i.damageable ? j.damage - i.damage : i.damage - j.damage;
+        } else {
+            return j.stackSize - i.stackSize;
+        }
+    }
+
+}
@@ -0,0 +1,338 @@
+package invtweaks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.inventory.Slot;
+import net.minecraft.item.ItemStack;
+
+/**
+ * In-memory copy of a container section, allowing to run a sort without clicking anything, or without any game at
+ * all. Clicks follow vanilla's Container.slotClick() and moves are made of the same clicks as in
+ * {@link InvTweaksContainerManager#move}.
+ *
+ * Every stack remembers the slot it comes from, so that the final layout can be turned into a
+ * {@link InvTweaksSortingPlan}.
+ */
+public class InvTweaksSortingModel implements InvTweaksSlotStore {
+
+    private static final int DEFAULT_STACK_LIMIT = 64;
+
+    /**
+     * Whether each slot accepts the stack initially stored in each slot, copied from the actual slots so that the model
+     * can be used on another thread. A null row means the slot accepts anything, and the whole array is null if there
+     * is no actual container.
+     */
+    private final boolean[][] validity;
+
+    /**
+     * Stack limit of each slot, null if there is no actual container
+     */
+    private final int[] stackLimits;
+    private final int size;
+
+    /**
+     * Stacks of the section, plus an extra slot standing for the rest of the container if it has room (used as
+     * intermediate slot when swapping tools, maps, etc.)
+     */
+    private final ItemStack[] stacks;
+
+    /**
+     * Initial slot of the stack currently stored in each slot, -1 if the slot is empty
+     */
+    private final int[] origins;
+
+    private ItemStack heldStack = null;
+    private int heldOrigin = -1;
+
+    /**
+     * Merges performed so far, as {donor origin, receiver origin, amount}
+     */
+    private final List<int[]> merges = new ArrayList<int[]>();
+
+    /**
+     * Set as soon as a stack is divided, since the resulting layout can't be described as a plan anymore
+     */
+    private boolean stacksSplit = false;
+
+    private int clickCount = 0;
+
+    /**
+     * @param hasSpareSlot Whether there is some room outside of the section
+     */
+    public InvTweaksSortingModel(InvTweaksContainerSectionManager containerMgr, boolean hasSpareSlot) {
+        this(containerMgr.getSlots(), getContents(containerMgr), hasSpareSlot);
+    }
+
+    /**
+     * Builds a model without any actual container behind it: every slot accepts any item.
+     */
+    public InvTweaksSortingModel(ItemStack[] contents, boolean hasSpareSlot) {
+        this(null, contents, hasSpareSlot);
+    }
+
+    private InvTweaksSortingModel(List<Slot> slots, ItemStack[] contents, boolean hasSpareSlot) {
+        this.size = contents.length;
+        if (slots != null) {
+            validity = new boolean[size][];
+            stackLimits = new int[size];
+            for (int i = 0; i < size; i++) {
+                Slot slot = slots.get(i);
+                stackLimits[i] = slot.getSlotStackLimit();
+                if (slot.getClass() != Slot.class) { // Plain slots accept anything
+                    validity[i] = new boolean[size];
+                    for (int j = 0; j < size; j++) {
+                        validity[i][j] = contents[j] != null && slot.isItemValid(contents[j]);
+                    }
+                }
+            }
+        } else {
+            validity = null;
+            stackLimits = null;
+        }
+        this.stacks = new ItemStack[hasSpareSlot ? size + 1 : size];
+        this.origins = new int[stacks.length];
+        for (int i = 0; i < stacks.length; i++) {
+            ItemStack stack = (i < size) ? contents[i] : null;
+            stacks[i] = (stack != null) ? stack.copy() : null;
+            origins[i] = (stack != null) ? i : -1;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public ItemStack getItemStack(int index) {
+        return stacks[index];
+    }
+
+    public ItemStack getHeldStack() {
+        return heldStack;
+    }
+
+    public int getClickCount() {
+        return clickCount;
+    }
+
+    public void click(int index, boolean rightClick) {
+        ItemStack slotStack = stacks[index];
+        clickCount++;
+        if (rightClick) {
+            stacksSplit = true;
+        }
+
+        if (slotStack == null) {
+            if (heldStack != null && isItemValid(index, heldOrigin)) {
+                int amount = Math.min(rightClick ? 1 : heldStack.stackSize, getSlotStackLimit(index));
+                if (amount == heldStack.stackSize) {
+                    stacks[index] = heldStack;
+                    origins[index] = heldOrigin;
+                    setHeldStack(null, -1);
+                } else {
+                    stacks[index] = split(heldStack, amount);
+                    origins[index] = heldOrigin;
+                }
+            }
+        } else if (heldStack == null) {
+            int amount = rightClick ? (slotStack.stackSize + 1) / 2 : slotStack.stackSize;
+            if (amount == slotStack.stackSize) {
+                setHeldStack(slotStack, origins[index]);
+                stacks[index] = null;
+                origins[index] = -1;
+            } else {
+                setHeldStack(split(slotStack, amount), origins[index]);
+            }
+        } else if (isItemValid(index, heldOrigin)) {
+            if (slotStack.getItem() == heldStack.getItem() && slotStack.getItemDamage() == heldStack.getItemDamage()
+                    && ItemStack.areItemStackTagsEqual(slotStack, heldStack)) {
+                int amount = rightClick ? 1 : heldStack.stackSize;
+                amount = Math.min(amount, getSlotStackLimit(index) - slotStack.stackSize);
+                amount = Math.min(amount, heldStack.getMaxStackSize() - slotStack.stackSize);
+                merge(heldOrigin, origins[index], amount);
+                heldStack.stackSize -= amount;
+                slotStack.stackSize += amount;
+                if (heldStack.stackSize == 0) {
+                    setHeldStack(null, -1);
+                }
+            } else if (heldStack.stackSize <= getSlotStackLimit(index)) {
+                ItemStack stack = heldStack;
+                int origin = heldOrigin;
+                setHeldStack(slotStack, origins[index]);
+                stacks[index] = stack;
+                origins[index] = origin;
+            }
+        } else if (slotStack.getItem() == heldStack.getItem() && heldStack.getMaxStackSize() > 1
+                && (!slotStack.getHasSubtypes() || slotStack.getItemDamage() == heldStack.getItemDamage())
+                && ItemStack.areItemStackTagsEqual(slotStack, heldStack)) {
+            // Taking items from a slot that doesn't accept the held stack (ex. crafting output)
+            int amount = slotStack.stackSize;
+            if (amount > 0 && amount + heldStack.stackSize <= heldStack.getMaxStackSize()) {
+                merge(origins[index], heldOrigin, amount);
+                heldStack.stackSize += amount;
+                stacks[index] = null;
+                origins[index] = -1;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link InvTweaksContainerManager#move}, within the section.
+     */
+    public boolean move(int srcIndex, int destIndex) {
+        ItemStack srcStack = stacks[srcIndex], destStack = stacks[destIndex];
+
+        if (srcStack == null) {
+            return false;
+        } else if (srcIndex == destIndex) {
+            return true;
+        }
+
+        if (!isItemValid(destIndex, origins[srcIndex])) {
+            return false;
+        }
+
+        // Put hold item down
+        if (heldStack != null) {
+            int firstEmptyIndex = getFirstEmptyIndex();
+            if (firstEmptyIndex != -1 && firstEmptyIndex < size) {
+                click(firstEmptyIndex, false);
+            } else {
+                return false;
+            }
+        }
+
+        // Use intermediate slot if we have to swap tools, maps, etc.
+        if (destStack != null && srcStack.getItem() == destStack.getItem()
+                && (srcStack.getMaxStackSize() == 1 || srcStack.hasTagCompound() || destStack.hasTagCompound())) {
+            int intermediateIndex = getFirstEmptyIndex();
+            if (intermediateIndex == -1 || !isItemValid(intermediateIndex, origins[destIndex])
+                    || !isItemValid(srcIndex, origins[destIndex])) {
+                return false;
+            }
+            click(destIndex, false);
+            click(intermediateIndex, false);
+            click(srcIndex, false);
+            click(destIndex, false);
+            click(intermediateIndex, false);
+            click(srcIndex, false);
+        }
+
+        // Normal move
+        else {
+            click(srcIndex, false);
+            click(destIndex, false);
+            if (heldStack != null) {
+                if (isItemValid(srcIndex, heldOrigin)) {
+                    click(srcIndex, false);
+                } else {
+                    int firstEmptyIndex = getFirstEmptyIndex();
+                    if (firstEmptyIndex != -1) {
+                        click(firstEmptyIndex, false);
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Same as {@link InvTweaksContainerManager#moveSome}, within the section. As there, the destination stack is not
+     * checked.
+     */
+    public boolean moveSome(int srcIndex, int destIndex, int amount) {
+        ItemStack source = stacks[srcIndex];
+        if (source == null || srcIndex == destIndex) {
+            return true;
+        }
+
+        int sourceSize = source.stackSize;
+        int movedAmount = Math.min(amount, sourceSize);
+
+        click(srcIndex, false);
+        for (int i = 0; i < movedAmount; i++) {
+            click(destIndex, true);
+        }
+        if (movedAmount < sourceSize) {
+            click(srcIndex, false);
+        }
+        return true;
+    }
+
+    /**
+     * @return The plan that turns the initial contents of the section into the current ones, or null if it can't be
+     *         described as merges and moves of whole stacks.
+     */
+    public InvTweaksSortingPlan getPlan() {
+        if (stacksSplit || heldStack != null || (stacks.length > size && stacks[size] != null)) {
+            return null;
+        }
+
+        int[] destinations = new int[size];
+        for (int i = 0; i < size; i++) {
+            destinations[i] = -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (origins[i] != -1) {
+                destinations[origins[i]] = i;
+            }
+        }
+        ItemStack[] layout = new ItemStack[size];
+        System.arraycopy(stacks, 0, layout, 0, size);
+        return new InvTweaksSortingPlan(new ArrayList<int[]>(merges), destinations, layout);
+    }
+
+    /**
+     * @param origin Initial slot of the stack, which tells what item it is
+     */
+    private boolean isItemValid(int index, int origin) {
+        return validity == null || index >= size || validity[index] == null || validity[index][origin];
+    }
+
+    private int getSlotStackLimit(int index) {
+        return (stackLimits == null || index >= size) ? DEFAULT_STACK_LIMIT : stackLimits[index];
+    }
+
+    /**
+     * @return The first empty slot, including the spare one, or -1.
+     */
+    private int getFirstEmptyIndex() {
+        for (int i = 0; i < stacks.length; i++) {
+            if (stacks[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void setHeldStack(ItemStack stack, int origin) {
+        heldStack = stack;
+        heldOrigin = origin;
+    }
+
+    private void merge(int donorOrigin, int receiverOrigin, int amount) {
+        if (amount > 0) {
+            merges.add(new int[] { donorOrigin, receiverOrigin, amount });
+        } else if (amount < 0) {
+            stacksSplit = true;
+        }
+    }
+
+    private ItemStack split(ItemStack stack, int amount) {
+        ItemStack part = stack.copy();
+        part.stackSize = amount;
+        stack.stackSize -= amount;
+        stacksSplit = true;
+        return part;
+    }
+
+    private static ItemStack[] getContents(InvTweaksContainerSectionManager containerMgr) {
+        ItemStack[] contents = new ItemStack[containerMgr.getSize()];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = containerMgr.getItemStack(i);
+        }
+        return contents;
+    }
+
+}
@@ -0,0 +1,131 @@
+package invtweaks;
+
+import java.util.List;
+
+import net.minecraft.inventory.Slot;
+import net.minecraft.item.ItemStack;
+
+import org.apache.logging.log4j.Logger;
+
+import invtweaks.api.container.ContainerSection;
+import invtweaks.forge.InvTweaksMod;
+import invtweaks.network.packets.ITPacketSortPlan;
+
+/**
+ * The outcome of a sort computed on an {@link InvTweaksSortingModel}: the merges to perform, then the slot each
+ * remaining stack has to go to. Applying it only clicks on the stacks that actually change place.
+ */
+public class InvTweaksSortingPlan {
+
+    private static final Logger log = InvTweaks.log;
+
+    /**
+     * Merges as {donor slot, receiver slot, amount}, in the initial layout, in order
+     */
+    private final List<int[]> merges;
+
+    /**
+     * Final slot of the stack initially stored in each slot, -1 if the slot is empty once merges are done
+     */
+    private final int[] destinations;
+
+    /**
+     * Expected contents of the section once the plan has been applied
+     */
+    private final ItemStack[] layout;
+
+    public InvTweaksSortingPlan(List<int[]> merges, int[] destinations, ItemStack[] layout) {
+        this.merges = merges;
+        this.destinations = destinations;
+        this.layout = layout;
+    }
+
+    public int getMergeCount() {
+        return merges.size();
+    }
+
+    public int getMoveCount() {
+        int moves = 0;
+        for (int i = 0; i < destinations.length; i++) {
+            if (destinations[i] != -1 && destinations[i] != i) {
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Applies the plan in a single packet if the server supports it, by clicking otherwise.
+     *
+     * @return false if the plan can't be applied. Nothing has been done in that case.
+     */
+    public boolean execute(InvTweaksContainerManager containerMgr, ContainerSection section) {
+        ITPacketSortPlan packet = toPacket(containerMgr, section);
+        if (packet != null && InvTweaksMod.proxy.sortPlan(packet)) {
+            if (log.isEnabled(InvTweaksConst.DEBUG)) {
+                log.info("Sorting plan sent to the server.");
+            }
+        } else {
+            InvTweaksPermutationExecutor executor = getPermutationExecutor(containerMgr, section);
+            if (!executor.canExecute()) {
+                return false;
+            }
+
+            // Merge stacks while they are all still in their initial slot
+            for (int[] merge : merges) {
+                containerMgr.move(section, merge[0], section, merge[1]);
+            }
+
+            if (log.isEnabled(InvTweaksConst.DEBUG)) {
+                log.info("Moving stacks in " + executor.getClickCount() + " clicks.");
+            }
+            executor.execute();
+        }
+
+        for (int i = 0; i < layout.length; i++) {
+            ItemStack expected = layout[i], actual = containerMgr.getItemStack(section, i);
+            if ((expected == null) ? actual != null : !ItemStack.areItemStacksEqual(expected, actual)) {
+                log.warn("Sorting plan did not end up with the expected contents (slot " + i + ")");
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return null if the section can't be rearranged by a single packet
+     */
+    private ITPacketSortPlan toPacket(InvTweaksContainerManager containerMgr, ContainerSection section) {
+        int[] slots = new int[destinations.length];
+        Slot[] sectionSlots = new Slot[destinations.length];
+        for (int i = 0; i < slots.length; i++) {
+            sectionSlots[i] = containerMgr.getSlot(section, i);
+            slots[i] = sectionSlots[i].slotNumber;
+        }
+        if (!ITPacketSortPlan.canRearrange(sectionSlots)) {
+            return null;
+        }
+        return toPacket(containerMgr.getContainer().windowId, slots);
+    }
+
+    /**
+     * @param slots Container slot number of each slot of the section
+     */
+    ITPacketSortPlan toPacket(int window, int[] slots) {
+        // Packet indexes are the section indexes, so merges and destinations can be sent as is
+        return new ITPacketSortPlan(window, slots, destinations.clone(), merges);
+    }
+
+    private InvTweaksPermutationExecutor getPermutationExecutor(InvTweaksContainerManager containerMgr,
+            ContainerSection section) {
+        // Contents of the section once merges are done
+        ItemStack[] stacks = new ItemStack[destinations.length];
+        for (int i = 0; i < destinations.length; i++) {
+            if (destinations[i] != -1) {
+                stacks[i] = layout[destinations[i]];
+            }
+        }
+        return new InvTweaksPermutationExecutor(containerMgr, section, stacks, destinations);
+    }
+
+}
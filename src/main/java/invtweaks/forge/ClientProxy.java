@@ -1,5 +1,8 @@
 package invtweaks.forge;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.inventory.GuiContainer;
 import net.minecraft.client.multiplayer.PlayerControllerMP;
@@ -8,11 +11,14 @@ import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.Container;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.network.play.client.C0EPacketClickWindow;
 import net.minecraft.util.EnumChatFormatting;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.entity.player.ItemTooltipEvent;
+import net.minecraftforge.event.world.WorldEvent;
 
 import org.lwjgl.input.Keyboard;
+import org.lwjgl.input.Mouse;
 
 import cpw.mods.fml.client.FMLClientHandler;
 import cpw.mods.fml.client.registry.ClientRegistry;
@@ -25,6 +31,7 @@ import cpw.mods.fml.common.network.FMLNetworkEvent;
 import cpw.mods.fml.relauncher.Side;
 import invtweaks.InvTweaks;
 import invtweaks.InvTweaksConfig;
+import invtweaks.InvTweaksConst;
 import invtweaks.InvTweaksHandlerSorting;
 import invtweaks.InvTweaksItemTreeLoader;
 import invtweaks.api.IItemTreeListener;
@@ -32,7 +39,10 @@ import invtweaks.api.SortingMethod;
 import invtweaks.api.container.ContainerSection;
 import invtweaks.forge.asm.interfaces.IInvTweaksContainer;
 import invtweaks.network.packets.ITPacketClick;
+import invtweaks.network.packets.ITPacketClickBatch;
+import invtweaks.network.packets.ITPacketClickCompact;
 import invtweaks.network.packets.ITPacketSortComplete;
+import invtweaks.network.packets.ITPacketSortPlan;
 
 public class ClientProxy extends CommonProxy {
 
@@ -45,6 +55,13 @@ public class ClientProxy extends CommonProxy {
     private ForgeClientTick clientTick;
     public boolean serverSupportEnabled = false;
     public boolean serverSupportDetected = false;
+    public int serverProtocolRevision = 0;
+    private ITPacketClickBatch pendingClicks = null;
+
+    /**
+     * Packets waiting to be sent when clicks are paced, in order. Sent at the end of each client tick.
+     */
+    private final Deque<PacedSend> pacedSends = new ArrayDeque<PacedSend>();
 
     @Override
     public void preInit(FMLPreInitializationEvent e) {
@@ -90,28 +107,163 @@ public class ClientProxy extends CommonProxy {
     @Override
     public void setServerHasInvTweaks(boolean hasInvTweaks) {
         serverSupportDetected = hasInvTweaks;
-        serverSupportEnabled = hasInvTweaks && !InvTweaks.getConfigManager().getConfig()
-                .getProperty(InvTweaksConfig.PROP_ENABLE_SERVER_ITEMSWAP).equals(InvTweaksConfig.VALUE_FALSE);
+        serverSupportEnabled = hasInvTweaks
+                && InvTweaks.getConfigManager().getConfig().getSnapshot().serverItemSwapEnabled;
         // InvTweaks.log.info("Server has support: " + hasInvTweaks + " support enabled: " + serverSupportEnabled);
     }
 
+    @Override
+    public void setServerProtocolRevision(int revision) {
+        serverProtocolRevision = revision;
+    }
+
     @Override
     public void slotClick(PlayerControllerMP playerController, int windowId, int slot, int data, int action,
             EntityPlayer player) {
         // int modiferKeys = (shiftHold) ? 1 : 0 /* XXX Placeholder */;
+        int clicksPerTick = getClicksPerTick();
         if (serverSupportEnabled) {
             player.openContainer.slotClick(slot, data, action, player);
 
-            invtweaksChannel.get(Side.CLIENT).writeOutbound(new ITPacketClick(slot, data, action, windowId));
+            if (serverProtocolRevision >= InvTweaksConst.PROTOCOL_REVISION_CLICK_BATCH) {
+                if (pendingClicks != null && pendingClicks.window != windowId) {
+                    flushClicks();
+                }
+                if (pendingClicks == null) {
+                    pendingClicks = new ITPacketClickBatch(windowId);
+                }
+                pendingClicks.add(slot, data, action);
+                if (pendingClicks.isFull() || (clicksPerTick > 0 && pendingClicks.count >= clicksPerTick)) {
+                    flushClicks();
+                }
+            } else {
+                sendToServer(new ITPacketClick(slot, data, action, windowId), 1);
+            }
+        } else if (clicksPerTick > 0 || !pacedSends.isEmpty()) {
+            // Same as windowClick, but the packet may have to wait
+            short transactionId = player.openContainer.getNextTransactionID(player.inventory);
+            ItemStack result = player.openContainer.slotClick(slot, data, action, player);
+            final C0EPacketClickWindow packet = new C0EPacketClickWindow(
+                    windowId,
+                    slot,
+                    data,
+                    action,
+                    result,
+                    transactionId);
+            send(() -> FMLClientHandler.instance().getClient().getNetHandler().addToSendQueue(packet), 1);
         } else {
             playerController.windowClick(windowId, slot, data, action, player);
         }
     }
 
+    private void sendToServer(final Object packet, int clicks) {
+        send(() -> invtweaksChannel.get(Side.CLIENT).writeOutbound(packet), clicks);
+    }
+
+    /**
+     * Sends a packet right away, or once the packets before it have been sent if clicks are paced.
+     */
+    private void send(Runnable sender, int clicks) {
+        if (pacedSends.isEmpty() && getClicksPerTick() <= 0) {
+            sender.run();
+        } else {
+            EntityPlayer player = FMLClientHandler.instance().getClient().thePlayer;
+            pacedSends.add(new PacedSend(sender, clicks, (player != null) ? player.openContainer.windowId : -1));
+        }
+    }
+
+    /**
+     * The player's clicks and the window closing are sent by vanilla right away, so they would reach the server before
+     * the held back clicks, and in a different order than the client applied them. Their input is dropped until the
+     * queue is empty instead. If the window changed anyway, everything left is sent at once.
+     */
+    @Override
+    public void holdInputWhilePacing() {
+        if (pacedSends.isEmpty()) {
+            return;
+        }
+        Minecraft mc = FMLClientHandler.instance().getClient();
+        if (mc.thePlayer == null || mc.thePlayer.openContainer.windowId != pacedSends.peekLast().windowId) {
+            while (!pacedSends.isEmpty() && mc.theWorld != null) {
+                pacedSends.poll().sender.run();
+            }
+            pacedSends.clear();
+        } else if (mc.currentScreen != null) {
+            while (Mouse.next()) {}
+            while (Keyboard.next()) {}
+        }
+    }
+
+    @Override
+    public void sendPacedClicks() {
+        if (FMLClientHandler.instance().getClient().theWorld == null) {
+            // Disconnected, the clicks are meaningless now
+            pacedSends.clear();
+            return;
+        }
+        int budget = getClicksPerTick();
+        boolean unlimited = budget <= 0, sent = false;
+        // A batch bigger than the budget still goes through, alone
+        while (!pacedSends.isEmpty() && (unlimited || !sent || pacedSends.peek().clicks <= budget)) {
+            PacedSend next = pacedSends.poll();
+            next.sender.run();
+            budget -= next.clicks;
+            sent = true;
+        }
+    }
+
+    /**
+     * @return The maximum number of clicks to send per tick, 0 or less if there is no limit.
+     */
+    private int getClicksPerTick() {
+        InvTweaksConfig config = InvTweaks.getConfigManager().getConfig();
+        return (config != null) ? config.getSnapshot().clicksPerTick : 0;
+    }
+
+    @Override
+    public void flushClicks() {
+        if (pendingClicks != null) {
+            if (pendingClicks.count == 1 && serverProtocolRevision >= InvTweaksConst.PROTOCOL_REVISION_COMPACT_CLICK) {
+                sendToServer(
+                        new ITPacketClickCompact(
+                                pendingClicks.slots[0],
+                                pendingClicks.data[0],
+                                pendingClicks.actions[0],
+                                pendingClicks.window),
+                        1);
+            } else {
+                sendToServer(pendingClicks, pendingClicks.count);
+            }
+            pendingClicks = null;
+        }
+    }
+
     @Override
     public void sortComplete() {
+        flushClicks();
         if (serverSupportEnabled) {
-            invtweaksChannel.get(Side.CLIENT).writeOutbound(new ITPacketSortComplete());
+            if (serverProtocolRevision >= InvTweaksConst.PROTOCOL_REVISION_SORT_CHECKSUMS) {
+                EntityPlayer player = FMLClientHandler.instance().getClient().thePlayer;
+                sendToServer(new ITPacketSortComplete(player.openContainer, player.inventory.getItemStack()), 0);
+            } else {
+                sendToServer(new ITPacketSortComplete(), 0);
+            }
+        }
+    }
+
+    @Override
+    public boolean sortPlan(ITPacketSortPlan plan) {
+        if (!serverSupportEnabled || serverProtocolRevision < InvTweaksConst.PROTOCOL_REVISION_SORT_PLAN) {
+            return false;
+        }
+
+        EntityPlayer player = FMLClientHandler.instance().getClient().thePlayer;
+        if (plan.apply(player.openContainer, player)) {
+            flushClicks();
+            sendToServer(plan, 0);
+            return true;
+        } else {
+            return false;
         }
     }
 
@@ -165,5 +317,29 @@ public class ClientProxy extends CommonProxy {
     @SubscribeEvent
     public void onConnectionToServer(FMLNetworkEvent.ClientConnectedToServerEvent e) {
         setServerHasInvTweaks(false);
+        setServerProtocolRevision(0);
+        pendingClicks = null;
+        pacedSends.clear();
+        InvTweaksHandlerSorting.cancelPendingPlan();
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload e) {
+        if (e.world.isRemote) {
+            InvTweaksHandlerSorting.cancelPendingPlan();
+        }
+    }
+
+    private static class PacedSend {
+
+        private final Runnable sender;
+        private final int clicks;
+        private final int windowId;
+
+        public PacedSend(Runnable sender, int clicks, int windowId) {
+            this.sender = sender;
+            this.clicks = clicks;
+            this.windowId = windowId;
+        }
     }
 }
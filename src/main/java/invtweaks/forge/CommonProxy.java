@@ -23,10 +23,13 @@ import invtweaks.api.InvTweaksAPI;
 import invtweaks.api.SortingMethod;
 import invtweaks.api.container.ContainerSection;
 import invtweaks.network.ITMessageToMessageCodec;
+import invtweaks.network.handlers.ClickBatchMessageHandler;
 import invtweaks.network.handlers.ClickMessageHandler;
 import invtweaks.network.handlers.LoginMessageHandler;
+import invtweaks.network.handlers.SortPlanMessageHandler;
 import invtweaks.network.handlers.SortingCompleteMessageHandler;
 import invtweaks.network.packets.ITPacketLogin;
+import invtweaks.network.packets.ITPacketSortPlan;
 
 public class CommonProxy implements InvTweaksAPI {
 
@@ -40,7 +43,9 @@ public class CommonProxy implements InvTweaksAPI {
                 new ITMessageToMessageCodec(),
                 new ClickMessageHandler(),
                 new LoginMessageHandler(),
-                new SortingCompleteMessageHandler());
+                new SortingCompleteMessageHandler(),
+                new SortPlanMessageHandler(),
+                new ClickBatchMessageHandler());
 
         FMLCommonHandler.instance().bus().register(this);
     }
@@ -51,6 +56,8 @@ public class CommonProxy implements InvTweaksAPI {
 
     public void setServerHasInvTweaks(boolean hasInvTweaks) {}
 
+    public void setServerProtocolRevision(int revision) {}
+
     /*
      * Action values: 0: Standard Click 1: Shift-Click 2: Move item to/from hotbar slot (Depends on current slot and
      * hotbar slot being full or empty) 3: Duplicate item (only while in creative) 4: Drop item 5: Spread items (Drag
@@ -60,10 +67,39 @@ public class CommonProxy implements InvTweaksAPI {
     public void slotClick(PlayerControllerMP playerController, int windowId, int slot, int data, int action,
             EntityPlayer player) {}
 
+    /**
+     * Sends the clicks that have been kept to be sent together, if any.
+     */
+    @SideOnly(Side.CLIENT)
+    public void flushClicks() {}
+
+    /**
+     * Sends the packets that have been held back to respect the click rate, up to this tick's budget.
+     */
+    @SideOnly(Side.CLIENT)
+    public void sendPacedClicks() {}
+
+    /**
+     * Keeps the player's own input from overtaking the packets that have been held back. Called before the input of
+     * each client tick is handled.
+     */
+    @SideOnly(Side.CLIENT)
+    public void holdInputWhilePacing() {}
+
     public void sortComplete() {
 
     }
 
+    /**
+     * Applies a sort plan to the open container, and has the server do the same.
+     *
+     * @return false if the server doesn't support it, in which case nothing has been done.
+     */
+    @SideOnly(Side.CLIENT)
+    public boolean sortPlan(ITPacketSortPlan plan) {
+        return false;
+    }
+
     @Override
     public void addOnLoadListener(IItemTreeListener listener) {
 
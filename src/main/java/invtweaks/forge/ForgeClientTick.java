@@ -6,6 +6,7 @@ import cpw.mods.fml.client.FMLClientHandler;
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import cpw.mods.fml.common.gameevent.TickEvent;
 import invtweaks.InvTweaks;
+import invtweaks.InvTweaksHandlerSorting;
 
 public class ForgeClientTick {
 
@@ -19,13 +20,19 @@ public class ForgeClientTick {
     public void onTick(TickEvent.ClientTickEvent tick) {
         if (tick.phase == TickEvent.Phase.START) {
             Minecraft mc = FMLClientHandler.instance().getClient();
+            InvTweaksMod.proxy.holdInputWhilePacing();
             if (mc.theWorld != null) {
+                InvTweaksHandlerSorting.applyPendingPlan();
                 if (mc.currentScreen != null) {
                     instance.onTickInGUI(mc.currentScreen);
                 } else {
                     instance.onTickInGame();
                 }
             }
+        } else {
+            // Clicks made outside of sorts (shortcuts...) are sent once per tick
+            InvTweaksMod.proxy.flushClicks();
+            InvTweaksMod.proxy.sendPacedClicks();
         }
     }
 }
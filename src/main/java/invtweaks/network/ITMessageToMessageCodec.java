@@ -4,8 +4,11 @@ import cpw.mods.fml.common.network.FMLIndexedMessageToMessageCodec;
 import invtweaks.InvTweaksConst;
 import invtweaks.network.packets.ITPacket;
 import invtweaks.network.packets.ITPacketClick;
+import invtweaks.network.packets.ITPacketClickBatch;
+import invtweaks.network.packets.ITPacketClickCompact;
 import invtweaks.network.packets.ITPacketLogin;
 import invtweaks.network.packets.ITPacketSortComplete;
+import invtweaks.network.packets.ITPacketSortPlan;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 
@@ -15,6 +18,9 @@ public class ITMessageToMessageCodec extends FMLIndexedMessageToMessageCodec<ITP
         addDiscriminator(InvTweaksConst.PACKET_LOGIN, ITPacketLogin.class);
         addDiscriminator(InvTweaksConst.PACKET_CLICK, ITPacketClick.class);
         addDiscriminator(InvTweaksConst.PACKET_SORTCOMPLETE, ITPacketSortComplete.class);
+        addDiscriminator(InvTweaksConst.PACKET_SORTPLAN, ITPacketSortPlan.class);
+        addDiscriminator(InvTweaksConst.PACKET_CLICKBATCH, ITPacketClickBatch.class);
+        addDiscriminator(InvTweaksConst.PACKET_CLICKCOMPACT, ITPacketClickCompact.class);
     }
 
     @Override
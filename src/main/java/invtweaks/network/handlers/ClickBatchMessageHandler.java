@@ -0,0 +1,33 @@
+package invtweaks.network.handlers;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.INetHandler;
+import net.minecraft.network.NetHandlerPlayServer;
+
+import cpw.mods.fml.common.network.NetworkRegistry;
+import invtweaks.network.packets.ITPacketClickBatch;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+@ChannelHandler.Sharable
+public class ClickBatchMessageHandler extends SimpleChannelInboundHandler<ITPacketClickBatch> {
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ITPacketClickBatch msg) throws Exception {
+        INetHandler handler = ctx.channel().attr(NetworkRegistry.NET_HANDLER).get();
+
+        if (handler instanceof NetHandlerPlayServer) {
+            NetHandlerPlayServer serverHandler = (NetHandlerPlayServer) handler;
+            EntityPlayerMP player = serverHandler.playerEntity;
+
+            for (int i = 0; i < msg.count; i++) {
+                // Stop there if a click closed the window
+                if (player.openContainer.windowId != msg.window) {
+                    break;
+                }
+                player.openContainer.slotClick(msg.slots[i], msg.data[i], msg.actions[i], player);
+            }
+        }
+    }
+}
@@ -14,6 +14,7 @@ public class LoginMessageHandler extends SimpleChannelInboundHandler<ITPacketLog
     protected void channelRead0(ChannelHandlerContext ctx, ITPacketLogin msg) throws Exception {
         if (msg.protocolVersion == InvTweaksConst.PROTOCOL_VERSION) {
             InvTweaksMod.proxy.setServerHasInvTweaks(true);
+            InvTweaksMod.proxy.setServerProtocolRevision(msg.protocolRevision);
         }
     }
 }
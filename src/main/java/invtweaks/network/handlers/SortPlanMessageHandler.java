@@ -0,0 +1,30 @@
+package invtweaks.network.handlers;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.INetHandler;
+import net.minecraft.network.NetHandlerPlayServer;
+
+import cpw.mods.fml.common.network.NetworkRegistry;
+import invtweaks.network.packets.ITPacketSortPlan;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+@ChannelHandler.Sharable
+public class SortPlanMessageHandler extends SimpleChannelInboundHandler<ITPacketSortPlan> {
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ITPacketSortPlan msg) throws Exception {
+        INetHandler handler = ctx.channel().attr(NetworkRegistry.NET_HANDLER).get();
+
+        if (handler instanceof NetHandlerPlayServer) {
+            NetHandlerPlayServer serverHandler = (NetHandlerPlayServer) handler;
+            EntityPlayerMP player = serverHandler.playerEntity;
+
+            if (player.openContainer.windowId == msg.window && !msg.apply(player.openContainer, player)) {
+                // The client applied it already, make it revert
+                player.sendContainerToPlayer(player.openContainer);
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package invtweaks.network.handlers;
 
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.inventory.Container;
 import net.minecraft.network.INetHandler;
 import net.minecraft.network.NetHandlerPlayServer;
+import net.minecraft.network.play.server.S2FPacketSetSlot;
 
 import cpw.mods.fml.common.network.NetworkRegistry;
 import invtweaks.network.packets.ITPacketSortComplete;
@@ -20,8 +22,28 @@ public class SortingCompleteMessageHandler extends SimpleChannelInboundHandler<I
         if (handler instanceof NetHandlerPlayServer) {
             NetHandlerPlayServer serverHandler = (NetHandlerPlayServer) handler;
             EntityPlayerMP player = serverHandler.playerEntity;
+            Container container = player.openContainer;
 
-            player.sendContainerToPlayer(player.openContainer);
+            if (msg.checksums == null || container.windowId != msg.window) {
+                player.sendContainerToPlayer(container);
+                return;
+            }
+
+            // Only send back what the client got wrong
+            int[] checksums = ITPacketSortComplete.getChecksums(container, player.inventory.getItemStack());
+            if (checksums.length != msg.checksums.length) {
+                player.sendContainerToPlayer(container);
+                return;
+            }
+            if (checksums[0] != msg.checksums[0]) {
+                player.updateHeldItem();
+            }
+            for (int i = 1; i < checksums.length; i++) {
+                if (checksums[i] != msg.checksums[i]) {
+                    serverHandler.sendPacket(
+                            new S2FPacketSetSlot(container.windowId, i - 1, container.getSlot(i - 1).getStack()));
+                }
+            }
         }
     }
 }
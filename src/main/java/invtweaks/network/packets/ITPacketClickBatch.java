@@ -0,0 +1,90 @@
+package invtweaks.network.packets;
+
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Several clicks on the same window, sent at once. Fields are written as varints, as they are almost always small.
+ */
+public class ITPacketClickBatch implements ITPacket {
+
+    public static final int MAX_CLICKS = 2048;
+
+    public int window;
+    public int count;
+    public int[] slots;
+    public int[] data;
+    public int[] actions;
+
+    public ITPacketClickBatch() {}
+
+    public ITPacketClickBatch(int _window) {
+        window = _window;
+        slots = new int[16];
+        data = new int[16];
+        actions = new int[16];
+    }
+
+    public void add(int slot, int _data, int action) {
+        if (count == slots.length) {
+            slots = Arrays.copyOf(slots, count * 2);
+            data = Arrays.copyOf(data, count * 2);
+            actions = Arrays.copyOf(actions, count * 2);
+        }
+        slots[count] = slot;
+        data[count] = _data;
+        actions[count] = action;
+        count++;
+    }
+
+    public boolean isFull() {
+        return count >= MAX_CLICKS;
+    }
+
+    @Override
+    public void readBytes(ByteBuf bytes) {
+        window = bytes.readByte();
+        count = Math.min(readVarInt(bytes), MAX_CLICKS);
+        slots = new int[count];
+        data = new int[count];
+        actions = new int[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = readVarInt(bytes);
+            data[i] = readVarInt(bytes);
+            actions[i] = readVarInt(bytes);
+        }
+    }
+
+    @Override
+    public void writeBytes(ByteBuf bytes) {
+        bytes.writeByte(window);
+        writeVarInt(bytes, count);
+        for (int i = 0; i < count; i++) {
+            writeVarInt(bytes, slots[i]);
+            writeVarInt(bytes, data[i]);
+            writeVarInt(bytes, actions[i]);
+        }
+    }
+
+    static int readVarInt(ByteBuf bytes) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = bytes.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    // Negative values (such as the slot of clicks outside the window) take 5 bytes
+    static void writeVarInt(ByteBuf bytes, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes.writeByte(value);
+    }
+}
@@ -0,0 +1,44 @@
+package invtweaks.network.packets;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Same as {@link ITPacketClick}, but the usual small values fit in 4 bytes instead of 13: data and action are packed
+ * into one byte, and the slot is a varint. Handled by the same handler, as it is an {@link ITPacketClick} itself.
+ */
+public class ITPacketClickCompact extends ITPacketClick {
+
+    public ITPacketClickCompact() {}
+
+    public ITPacketClickCompact(int _slot, int _data, int _action, int _window) {
+        super(_slot, _data, _action, _window);
+    }
+
+    @Override
+    public void readBytes(ByteBuf bytes) {
+        window = bytes.readByte();
+        int packed = bytes.readUnsignedByte();
+        if (packed == 0xFF) {
+            // Values that don't fit, sent as varints
+            data = ITPacketClickBatch.readVarInt(bytes);
+            action = ITPacketClickBatch.readVarInt(bytes);
+        } else {
+            data = packed & 0x0F;
+            action = packed >> 4;
+        }
+        slot = ITPacketClickBatch.readVarInt(bytes);
+    }
+
+    @Override
+    public void writeBytes(ByteBuf bytes) {
+        bytes.writeByte(window);
+        if (data >= 0 && data < 0x0F && action >= 0 && action < 0x0F) {
+            bytes.writeByte(action << 4 | data);
+        } else {
+            bytes.writeByte(0xFF);
+            ITPacketClickBatch.writeVarInt(bytes, data);
+            ITPacketClickBatch.writeVarInt(bytes, action);
+        }
+        ITPacketClickBatch.writeVarInt(bytes, slot);
+    }
+}
@@ -6,14 +6,18 @@ import io.netty.buffer.ByteBuf;
 public class ITPacketLogin implements ITPacket {
 
     public byte protocolVersion = InvTweaksConst.PROTOCOL_VERSION;
+    public byte protocolRevision = InvTweaksConst.PROTOCOL_REVISION;
 
     @Override
     public void readBytes(ByteBuf bytes) {
         protocolVersion = bytes.readByte();
+        // Not sent by older versions
+        protocolRevision = bytes.isReadable() ? bytes.readByte() : 0;
     }
 
     @Override
     public void writeBytes(ByteBuf bytes) {
         bytes.writeByte(protocolVersion);
+        bytes.writeByte(protocolRevision);
     }
 }
@@ -1,16 +1,75 @@
 package invtweaks.network.packets;
 
+import java.util.List;
+
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.Slot;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
 import io.netty.buffer.ByteBuf;
 
 public class ITPacketSortComplete implements ITPacket {
 
+    /**
+     * Checksums of the held stack and of every slot of the window as seen by the client, null if not sent (by older
+     * versions, which expect the whole container to be sent back).
+     */
+    public int[] checksums;
+    public int window;
+
+    public ITPacketSortComplete() {}
+
+    public ITPacketSortComplete(Container container, ItemStack heldStack) {
+        window = container.windowId;
+        checksums = getChecksums(container, heldStack);
+    }
+
     @Override
     public void readBytes(ByteBuf bytes) {
-
+        if (bytes.isReadable()) {
+            window = bytes.readByte();
+            checksums = new int[bytes.readShort()];
+            for (int i = 0; i < checksums.length; i++) {
+                checksums[i] = bytes.readInt();
+            }
+        }
     }
 
     @Override
     public void writeBytes(ByteBuf bytes) {
+        if (checksums != null) {
+            bytes.writeByte(window);
+            bytes.writeShort(checksums.length);
+            for (int checksum : checksums) {
+                bytes.writeInt(checksum);
+            }
+        }
+    }
+
+    /**
+     * @return The checksum of the held stack, then of every slot in order.
+     */
+    @SuppressWarnings("unchecked")
+    public static int[] getChecksums(Container container, ItemStack heldStack) {
+        List<Slot> slots = container.inventorySlots;
+        int[] checksums = new int[slots.size() + 1];
+        checksums[0] = getChecksum(heldStack);
+        for (int i = 0; i < slots.size(); i++) {
+            checksums[i + 1] = getChecksum(slots.get(i).getStack());
+        }
+        return checksums;
+    }
 
+    public static int getChecksum(ItemStack stack) {
+        if (stack == null) {
+            return 0;
+        }
+        int checksum = Item.getIdFromItem(stack.getItem());
+        checksum = checksum * 31 + stack.getItemDamage();
+        checksum = checksum * 31 + stack.stackSize;
+        checksum = checksum * 31 + ((stack.getTagCompound() != null) ? stack.getTagCompound().hashCode() : 0);
+        // Keep 0 for empty slots
+        return (checksum != 0) ? checksum : 1;
     }
 }
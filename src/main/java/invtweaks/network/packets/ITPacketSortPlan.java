@@ -0,0 +1,173 @@
+package invtweaks.network.packets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.Slot;
+import net.minecraft.item.ItemStack;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Rearranges slots of the open container at once: some stacks are merged, then every stack is moved to its
+ * destination. Sent instead of all the clicks of a sort, when the server supports it.
+ */
+public class ITPacketSortPlan implements ITPacket {
+
+    public int window;
+
+    /**
+     * Container slot numbers of the rearranged slots
+     */
+    public int[] slots;
+
+    /**
+     * Index in {@link #slots} where the stack of each slot goes, -1 if the slot is emptied by merges
+     */
+    public int[] destinations;
+
+    /**
+     * Merges as {donor, receiver, amount}, with indexes in {@link #slots}
+     */
+    public List<int[]> merges;
+
+    public ITPacketSortPlan() {}
+
+    public ITPacketSortPlan(int _window, int[] _slots, int[] _destinations, List<int[]> _merges) {
+        window = _window;
+        slots = _slots;
+        destinations = _destinations;
+        merges = _merges;
+    }
+
+    @Override
+    public void readBytes(ByteBuf bytes) {
+        window = bytes.readByte();
+        int slotCount = bytes.readShort();
+        slots = new int[slotCount];
+        destinations = new int[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = bytes.readShort();
+            destinations[i] = bytes.readShort();
+        }
+        int mergeCount = bytes.readShort();
+        merges = new ArrayList<int[]>(mergeCount);
+        for (int i = 0; i < mergeCount; i++) {
+            merges.add(new int[] { bytes.readShort(), bytes.readShort(), bytes.readShort() });
+        }
+    }
+
+    @Override
+    public void writeBytes(ByteBuf bytes) {
+        bytes.writeByte(window);
+        bytes.writeShort(slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            bytes.writeShort(slots[i]);
+            bytes.writeShort(destinations[i]);
+        }
+        bytes.writeShort(merges.size());
+        for (int[] merge : merges) {
+            bytes.writeShort(merge[0]);
+            bytes.writeShort(merge[1]);
+            bytes.writeShort(merge[2]);
+        }
+    }
+
+    /**
+     * Only plain slots of a single inventory can be rearranged by a plan: slot subclasses may do things when a stack is
+     * taken from or put into them (crafting results, trades...), which {@link Slot#putStack} would skip.
+     */
+    public static boolean canRearrange(Slot[] slots) {
+        for (Slot slot : slots) {
+            if (slot == null || slot.getClass() != Slot.class || slot.inventory != slots[0].inventory) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the plan to the container, if it is entirely valid: the slots must exist, appear once and be plain slots
+     * of the same inventory (see {@link #canRearrange(Slot[])}), merged stacks
+     * must match and fit, moved stacks must be allowed to leave their slot and go in their destination, and no stack
+     * may be lost. Nothing is changed otherwise.
+     *
+     * @return true if the plan has been applied.
+     */
+    public boolean apply(Container container, EntityPlayer player) {
+        if (container == null || container.windowId != window || destinations.length != slots.length) {
+            return false;
+        }
+
+        int size = slots.length;
+        Slot[] containerSlots = new Slot[size];
+        ItemStack[] stacks = new ItemStack[size];
+        boolean[] seen = new boolean[container.inventorySlots.size()];
+        for (int i = 0; i < size; i++) {
+            if (slots[i] < 0 || slots[i] >= seen.length || seen[slots[i]]) {
+                return false;
+            }
+            seen[slots[i]] = true;
+            containerSlots[i] = container.getSlot(slots[i]);
+        }
+        if (!canRearrange(containerSlots)) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = containerSlots[i].getStack();
+            stacks[i] = (stack != null) ? stack.copy() : null;
+        }
+
+        // Merges
+        for (int[] merge : merges) {
+            int donor = merge[0], receiver = merge[1], amount = merge[2];
+            if (donor < 0 || donor >= size || receiver < 0 || receiver >= size || donor == receiver) {
+                return false;
+            }
+            ItemStack from = stacks[donor], to = stacks[receiver];
+            if (from == null || to == null || amount <= 0 || amount > from.stackSize || !from.isItemEqual(to)
+                    || !ItemStack.areItemStackTagsEqual(from, to)
+                    || to.stackSize + amount
+                            > Math.min(to.getMaxStackSize(), containerSlots[receiver].getSlotStackLimit())
+                    || !containerSlots[donor].canTakeStack(player)) {
+                return false;
+            }
+            from.stackSize -= amount;
+            to.stackSize += amount;
+            if (from.stackSize == 0) {
+                stacks[donor] = null;
+            }
+        }
+
+        // Moves
+        ItemStack[] result = new ItemStack[size];
+        boolean[] filled = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            int destination = destinations[i];
+            ItemStack stack = stacks[i];
+            if (destination == -1) {
+                if (stack != null) {
+                    return false;
+                }
+            } else if (destination < 0 || destination >= size || filled[destination]) {
+                return false;
+            } else {
+                filled[destination] = true;
+                result[destination] = stack;
+                if (stack != null && destination != i
+                        && (!containerSlots[i].canTakeStack(player)
+                                || !containerSlots[destination].isItemValid(stack)
+                                || stack.stackSize > containerSlots[destination].getSlotStackLimit())) {
+                    return false;
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            containerSlots[i].putStack(result[i]);
+        }
+        return true;
+    }
+}
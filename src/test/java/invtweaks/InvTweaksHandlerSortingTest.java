@@ -0,0 +1,133 @@
+package invtweaks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.minecraft.item.ItemStack;
+
+import org.junit.jupiter.api.Test;
+
+import invtweaks.api.SortingMethod;
+
+/**
+ * Checks that the default sorting still ends up with the same layout, in the same clicks, as the loop it replaced.
+ */
+public class InvTweaksHandlerSortingTest {
+
+    private static final String INVENTORY_RULES = "D LOCKED\n"
+            + "A9 FROZEN\n"
+            + "C5 FROZEN\n"
+            + "A1 sword\n"
+            + "A2-A3 pickaxe\n"
+            + "B wool\n"
+            + "C1-C4 coal\n"
+            + "A5 \"Stack 1\"\n";
+
+    @Test
+    public void chestsMatchOldDefaultSorting() throws Exception {
+        InvTweaksConfig config = InvTweaksTestData.getConfig(null);
+        for (int seed = 0; seed < 300; seed++) {
+            Random random = new Random(seed);
+            int size = InvTweaksConst.CHEST_ROW_SIZE * (1 + random.nextInt(12));
+            ItemStack[] contents = InvTweaksTestData.getRandomContents(random, size, random.nextDouble());
+            assertSameSort(config, contents, false, SortingMethod.DEFAULT, "Chest, seed " + seed);
+        }
+    }
+
+    @Test
+    public void chestsSortedByLinesMatchOldDefaultSorting() throws Exception {
+        InvTweaksConfig config = InvTweaksTestData.getConfig(null);
+        for (int seed = 0; seed < 100; seed++) {
+            Random random = new Random(seed);
+            ItemStack[] contents = InvTweaksTestData.getRandomContents(random, 54, random.nextDouble());
+            SortingMethod algorithm = (seed % 2 == 0) ? SortingMethod.VERTICAL : SortingMethod.HORIZONTAL;
+            assertSameSort(config, contents, false, algorithm, "Chest by lines, seed " + seed);
+        }
+    }
+
+    /**
+     * Covers locked and frozen slots, and stacks placed by item and name rules before the default sorting.
+     */
+    @Test
+    public void inventoriesMatchOldDefaultSorting() throws Exception {
+        InvTweaksConfig config = InvTweaksTestData.getConfig(INVENTORY_RULES);
+        for (int seed = 0; seed < 300; seed++) {
+            Random random = new Random(seed);
+            ItemStack[] contents = InvTweaksTestData
+                    .getRandomContents(random, InvTweaksConst.INVENTORY_SIZE, random.nextDouble());
+            assertSameSort(config, contents, true, SortingMethod.INVENTORY, "Inventory, seed " + seed);
+        }
+    }
+
+    private static void assertSameSort(InvTweaksConfig config, ItemStack[] contents, boolean inventory,
+            SortingMethod algorithm, String message) {
+        InvTweaksSortingModel expected = sort(config, contents, inventory, algorithm, true);
+        InvTweaksSortingModel actual = sort(config, contents, inventory, algorithm, false);
+
+        for (int i = 0; i < contents.length; i++) {
+            assertTrue(
+                    ItemStack.areItemStacksEqual(expected.getItemStack(i), actual.getItemStack(i)),
+                    message + ", slot " + i
+                            + ": expected "
+                            + InvTweaksTestData.describe(expected.getItemStack(i))
+                            + " but was "
+                            + InvTweaksTestData.describe(actual.getItemStack(i)));
+        }
+        assertEquals(expected.getClickCount(), actual.getClickCount(), message + ", clicks");
+    }
+
+    private static InvTweaksSortingModel sort(InvTweaksConfig config, ItemStack[] contents, boolean inventory,
+            SortingMethod algorithm, boolean oldDefaultSorting) {
+        InvTweaksSortingModel model = new InvTweaksSortingModel(contents, true);
+        InvTweaksHandlerSorting handler = new InvTweaksHandlerSorting(
+                config,
+                model,
+                inventory,
+                algorithm,
+                InvTweaksConst.CHEST_ROW_SIZE);
+        if (algorithm != SortingMethod.DEFAULT) {
+            handler.sortWithRules();
+        }
+        if (oldDefaultSorting) {
+            oldDefaultSorting(handler, contents.length);
+        } else {
+            handler.defaultSorting();
+        }
+        return model;
+    }
+
+    /**
+     * The default sorting loop as it was before it was made faster, kept as reference.
+     */
+    private static void oldDefaultSorting(InvTweaksHandlerSorting handler, int size) {
+        ArrayList<Integer> remaining = new ArrayList<Integer>(), nextRemaining = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            if (handler.hasToBeMoved(i)) {
+                remaining.add(i);
+                nextRemaining.add(i);
+            }
+        }
+
+        int iterations = 0;
+        while (remaining.size() > 0 && iterations++ < 50) {
+            for (int i : remaining) {
+                if (handler.hasToBeMoved(i)) {
+                    for (int j = 0; j < size; j++) {
+                        if (handler.move(i, j, 1) != -1) {
+                            nextRemaining.remove((Integer) j);
+                            break;
+                        }
+                    }
+                } else {
+                    nextRemaining.remove((Integer) i);
+                }
+            }
+            remaining.clear();
+            remaining.addAll(nextRemaining);
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+package invtweaks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Items;
+import net.minecraft.inventory.Container;
+import net.minecraft.item.ItemStack;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import invtweaks.api.SortingMethod;
+
+/**
+ * Checks that the model behaves like a vanilla container made of plain slots, click by click, and that its plans lead
+ * to the same layout.
+ */
+public class InvTweaksSortingModelTest {
+
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+
+    @BeforeAll
+    public static void setUp() {
+        InvTweaksTestData.bootstrap();
+    }
+
+    @Test
+    public void leftClickPicksUpAndPutsDown() throws Exception {
+        Clicks clicks = new Clicks(new ItemStack(Blocks.cobblestone, 20), null, null);
+        clicks.click(0, LEFT);
+        assertEquals(20, clicks.model.getHeldStack().stackSize);
+        clicks.click(2, LEFT);
+        assertNull(clicks.model.getHeldStack());
+        assertEquals(20, clicks.model.getItemStack(2).stackSize);
+    }
+
+    @Test
+    public void rightClickSplitsAndPutsOne() throws Exception {
+        Clicks clicks = new Clicks(new ItemStack(Blocks.cobblestone, 21), null, null);
+        clicks.click(0, RIGHT);
+        assertEquals(11, clicks.model.getHeldStack().stackSize);
+        clicks.click(1, RIGHT);
+        clicks.click(1, RIGHT);
+        clicks.click(0, RIGHT);
+        assertEquals(11, clicks.model.getItemStack(0).stackSize);
+        assertEquals(2, clicks.model.getItemStack(1).stackSize);
+        assertEquals(8, clicks.model.getHeldStack().stackSize);
+    }
+
+    @Test
+    public void swapsDifferentStacks() throws Exception {
+        ItemStack named = new ItemStack(Items.coal, 5);
+        named.setStackDisplayName("Named");
+        Clicks clicks = new Clicks(
+                new ItemStack(Items.coal, 5),
+                new ItemStack(Items.coal, 5, 1),
+                named,
+                new ItemStack(Items.diamond_sword));
+        clicks.click(0, LEFT);
+        clicks.click(1, LEFT); // Other damage
+        clicks.click(2, LEFT); // Other tags
+        clicks.click(3, RIGHT);
+        clicks.click(0, LEFT);
+        assertEquals(Items.diamond_sword, clicks.model.getItemStack(0).getItem());
+        assertNull(clicks.model.getHeldStack());
+    }
+
+    @Test
+    public void mergesUpToMaxStackSize() throws Exception {
+        Clicks clicks = new Clicks(
+                new ItemStack(Items.ender_pearl, 10),
+                new ItemStack(Items.ender_pearl, 10),
+                new ItemStack(Blocks.cobblestone, 40),
+                new ItemStack(Blocks.cobblestone, 40),
+                new ItemStack(Items.diamond_sword),
+                new ItemStack(Items.diamond_sword));
+        clicks.click(0, LEFT);
+        clicks.click(1, LEFT);
+        assertEquals(16, clicks.model.getItemStack(1).stackSize);
+        assertEquals(4, clicks.model.getHeldStack().stackSize);
+        clicks.click(0, LEFT);
+
+        clicks.click(2, LEFT);
+        clicks.click(3, RIGHT);
+        clicks.click(3, LEFT);
+        assertEquals(64, clicks.model.getItemStack(3).stackSize);
+        clicks.click(2, LEFT);
+
+        clicks.click(4, LEFT);
+        clicks.click(5, LEFT); // Same unstackable item, nothing happens
+        clicks.click(4, LEFT);
+    }
+
+    @Test
+    public void randomClicksMatchVanilla() throws Exception {
+        for (int seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            Clicks clicks = new Clicks(InvTweaksTestData.getRandomContents(random, 9, 0.6));
+            clicks.seed = seed;
+            for (int i = 0; i < 50; i++) {
+                clicks.click(random.nextInt(9), random.nextInt(3) == 0 ? RIGHT : LEFT);
+            }
+        }
+    }
+
+    @Test
+    public void planReproducesModelLayout() throws Exception {
+        InvTweaksConfig config = InvTweaksTestData.getConfig(null);
+        EntityPlayer player = InvTweaksTestData.getPlayer();
+        SortingMethod[] algorithms = { SortingMethod.DEFAULT, SortingMethod.VERTICAL, SortingMethod.HORIZONTAL };
+        int[] slots = new int[54];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = i;
+        }
+
+        for (int seed = 0; seed < 60; seed++) {
+            Random random = new Random(seed);
+            double fill = 0.3 + 0.5 * random.nextDouble();
+            ItemStack[] contents = InvTweaksTestData.getRandomContents(random, slots.length, fill);
+            SortingMethod algorithm = algorithms[seed % algorithms.length];
+            InvTweaksSortingModel model = new InvTweaksSortingModel(contents, true);
+            new InvTweaksHandlerSorting(config, model, false, algorithm, InvTweaksConst.CHEST_ROW_SIZE).sortSection();
+
+            InvTweaksSortingPlan plan = model.getPlan();
+            assertNotNull(plan, "Seed " + seed);
+            Container container = InvTweaksTestData.getContainer(contents);
+            assertTrue(plan.toPacket(container.windowId, slots).apply(container, player), "Seed " + seed);
+            for (int i = 0; i < slots.length; i++) {
+                String message = "Seed " + seed + ", slot " + i;
+                assertSameStack(model.getItemStack(i), container.getSlot(i).getStack(), message);
+            }
+        }
+    }
+
+    @Test
+    public void noPlanOnceStacksAreSplit() {
+        InvTweaksSortingModel model = new InvTweaksSortingModel(
+                new ItemStack[] { new ItemStack(Blocks.cobblestone, 20), null },
+                false);
+        model.click(0, true);
+        model.click(1, false);
+        assertNull(model.getPlan());
+    }
+
+    private static void assertSameStack(ItemStack expected, ItemStack actual, String message) {
+        assertTrue(
+                ItemStack.areItemStacksEqual(expected, actual),
+                message + ": expected " + InvTweaksTestData.describe(expected)
+                        + " but was "
+                        + InvTweaksTestData.describe(actual));
+    }
+
+    /**
+     * Clicks on both the model and a vanilla container, and checks that they still hold the same stacks.
+     */
+    private static class Clicks {
+
+        private final InvTweaksSortingModel model;
+        private final Container container;
+        private final EntityPlayer player;
+        private int seed = -1;
+        private int count = 0;
+
+        private Clicks(ItemStack... contents) throws Exception {
+            model = new InvTweaksSortingModel(contents, false);
+            container = InvTweaksTestData.getContainer(contents);
+            player = InvTweaksTestData.getPlayer();
+        }
+
+        private void click(int slot, int button) {
+            model.click(slot, button == RIGHT);
+            container.slotClick(slot, button, 0, player);
+            count++;
+
+            String message = "Seed " + seed + ", click " + count + " (" + slot + ", " + button + ")";
+            assertSameStack(player.inventory.getItemStack(), model.getHeldStack(), message + ", held stack");
+            for (int i = 0; i < model.getSize(); i++) {
+                assertSameStack(container.getSlot(i).getStack(), model.getItemStack(i), message + ", slot " + i);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package invtweaks;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.InventoryPlayer;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.init.Items;
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.InventoryBasic;
+import net.minecraft.inventory.Slot;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.common.util.FakePlayer;
+
+import sun.misc.Unsafe;
+
+/**
+ * Inputs shared by the sorting tests: configurations, random stacks, and vanilla containers to compare with. As for
+ * the benchmarks, the configuration is written in the "config" folder of the working directory.
+ */
+public class InvTweaksTestData {
+
+    private static final Enchantment[] ENCHANTMENTS = { Enchantment.sharpness, Enchantment.efficiency,
+            Enchantment.unbreaking, Enchantment.fortune };
+
+    /**
+     * Registers vanilla blocks and items. Must be called before using {@link Items} or {@link Blocks}.
+     */
+    public static void bootstrap() {
+        Bootstrap.func_151354_b();
+    }
+
+    /**
+     * @param rules Contents of the rules file, or null to use the default rules bundled with the mod
+     */
+    public static InvTweaksConfig getConfig(String rules) throws Exception {
+        bootstrap();
+        InvTweaksConst.MINECRAFT_CONFIG_DIR.mkdirs();
+
+        File rulesFile = InvTweaksConst.CONFIG_RULES_FILE;
+        if (rules == null) {
+            extractResource("DefaultConfig.dat", rulesFile);
+        } else {
+            Files.write(rulesFile.toPath(), rules.getBytes(StandardCharsets.UTF_8));
+        }
+        File treeFile = extractResource("ItemTree.xml", InvTweaksConst.CONFIG_TREE_FILE);
+
+        // The properties are left out, as they are of no use to sorting
+        InvTweaksConfig config = new InvTweaksConfig(rulesFile, treeFile);
+        config.loadTree();
+        return config;
+    }
+
+    /**
+     * @param fill Ratio of non-empty slots
+     */
+    public static ItemStack[] getRandomContents(Random random, int size, double fill) {
+        ItemStack[] stacks = new ItemStack[size];
+        for (int i = 0; i < size; i++) {
+            if (random.nextDouble() < fill) {
+                stacks[i] = getRandomStack(random);
+            }
+        }
+        return stacks;
+    }
+
+    /**
+     * Picks among a few items, so that the same items often come up: partial stacks of items with or without
+     * subtypes, smaller stacks, and tools that may be damaged. Stacks are sometimes named, and tools enchanted.
+     */
+    public static ItemStack getRandomStack(Random random) {
+        bootstrap();
+        ItemStack stack;
+        switch (random.nextInt(7)) {
+            case 0:
+                stack = new ItemStack(Blocks.cobblestone, 1 + random.nextInt(64));
+                break;
+            case 1:
+                stack = new ItemStack(Blocks.wool, 1 + random.nextInt(64), random.nextInt(3));
+                break;
+            case 2:
+                stack = new ItemStack(Items.coal, 1 + random.nextInt(64), random.nextInt(2));
+                break;
+            case 3:
+                stack = new ItemStack(Items.ender_pearl, 1 + random.nextInt(16));
+                break;
+            case 4:
+                stack = new ItemStack(Items.bread, 1 + random.nextInt(64));
+                break;
+            case 5:
+                stack = new ItemStack(Items.diamond_sword, 1, 100 * random.nextInt(3));
+                break;
+            default:
+                stack = new ItemStack(Items.iron_pickaxe, 1, 0);
+                break;
+        }
+        if (random.nextInt(6) == 0) {
+            stack.setStackDisplayName("Stack " + random.nextInt(2));
+        }
+        if (stack.getMaxStackSize() == 1 && random.nextInt(3) == 0) {
+            stack.addEnchantment(ENCHANTMENTS[random.nextInt(ENCHANTMENTS.length)], 1 + random.nextInt(3));
+        }
+        return stack;
+    }
+
+    /**
+     * @return A container made of plain slots holding a copy of the given stacks
+     */
+    public static Container getContainer(ItemStack[] contents) {
+        final InventoryBasic inventory = new InventoryBasic("Test", false, contents.length);
+        Container container = new Container() {
+
+            {
+                for (int i = 0; i < inventory.getSizeInventory(); i++) {
+                    addSlotToContainer(new Slot(inventory, i, 0, 0));
+                }
+            }
+
+            @Override
+            public boolean canInteractWith(EntityPlayer player) {
+                return true;
+            }
+        };
+        for (int i = 0; i < contents.length; i++) {
+            inventory.setInventorySlotContents(i, (contents[i] != null) ? contents[i].copy() : null);
+        }
+        return container;
+    }
+
+    /**
+     * @return A player holding nothing. Plain slots only use the player for the stack it holds, so it is created
+     *         without any world.
+     */
+    public static EntityPlayer getPlayer() throws Exception {
+        Field unsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+        unsafeField.setAccessible(true);
+        EntityPlayer player = (EntityPlayer) ((Unsafe) unsafeField.get(null)).allocateInstance(FakePlayer.class);
+        player.inventory = new InventoryPlayer(player);
+        return player;
+    }
+
+    /**
+     * @return A description of the stack for assertion messages
+     */
+    public static String describe(ItemStack stack) {
+        if (stack == null) {
+            return "empty";
+        }
+        return stack.stackSize + "x"
+                + InvTweaksItemIds.getName(InvTweaksItemIds.get(stack))
+                + "@"
+                + stack.getItemDamage()
+                + ((stack.hasTagCompound()) ? stack.getTagCompound().toString() : "");
+    }
+
+    private static File extractResource(String name, File file) throws Exception {
+        InputStream input = InvTweaksTestData.class.getResourceAsStream("/assets/inventorytweaks/" + name);
+        try {
+            Files.copy(input, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            input.close();
+        }
+        return file;
+    }
+
+}
@@ -0,0 +1,89 @@
+package invtweaks.network.packets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class ITPacketClickBatchTest {
+
+    @Test
+    public void roundTripsVarInts() {
+        int[] values = { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, -999, Integer.MIN_VALUE };
+        int[] lengths = { 1, 1, 1, 2, 2, 3, 5, 5, 5, 5 };
+        for (int i = 0; i < values.length; i++) {
+            ByteBuf bytes = Unpooled.buffer();
+            ITPacketClickBatch.writeVarInt(bytes, values[i]);
+            assertEquals(lengths[i], bytes.readableBytes(), "length of " + values[i]);
+            assertEquals(values[i], ITPacketClickBatch.readVarInt(bytes));
+            assertEquals(0, bytes.readableBytes());
+        }
+    }
+
+    @Test
+    public void roundTripsClicks() {
+        ITPacketClickBatch batch = new ITPacketClickBatch(3);
+        batch.add(0, 0, 0);
+        batch.add(-999, 1, 0);
+        batch.add(40, 0, 1);
+        batch.add(300, 7, 4);
+
+        ITPacketClickBatch read = roundTrip(batch);
+        assertEquals(3, read.window);
+        assertEquals(4, read.count);
+        assertArrayEquals(new int[] { 0, -999, 40, 300 }, read.slots);
+        assertArrayEquals(new int[] { 0, 1, 0, 7 }, read.data);
+        assertArrayEquals(new int[] { 0, 0, 1, 4 }, read.actions);
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        ITPacketClickBatch batch = new ITPacketClickBatch(1);
+        for (int i = 0; i < 100; i++) {
+            batch.add(i, i % 2, 0);
+        }
+
+        ITPacketClickBatch read = roundTrip(batch);
+        assertEquals(100, read.count);
+        assertArrayEquals(Arrays.copyOf(batch.slots, 100), read.slots);
+        assertArrayEquals(Arrays.copyOf(batch.data, 100), read.data);
+    }
+
+    @Test
+    public void capsClickCount() {
+        ITPacketClickBatch batch = new ITPacketClickBatch(1);
+        for (int i = 0; i < ITPacketClickBatch.MAX_CLICKS - 1; i++) {
+            batch.add(i, 0, 0);
+        }
+        assertFalse(batch.isFull());
+        batch.add(0, 0, 0);
+        assertTrue(batch.isFull());
+
+        // A batch claiming more clicks is truncated when read
+        for (int i = 0; i < 10; i++) {
+            batch.add(0, 0, 0);
+        }
+        ByteBuf bytes = Unpooled.buffer();
+        batch.writeBytes(bytes);
+        ITPacketClickBatch read = new ITPacketClickBatch();
+        read.readBytes(bytes);
+        assertEquals(ITPacketClickBatch.MAX_CLICKS, read.count);
+        assertEquals(ITPacketClickBatch.MAX_CLICKS, read.slots.length);
+    }
+
+    private static ITPacketClickBatch roundTrip(ITPacketClickBatch batch) {
+        ByteBuf bytes = Unpooled.buffer();
+        batch.writeBytes(bytes);
+        ITPacketClickBatch read = new ITPacketClickBatch();
+        read.readBytes(bytes);
+        assertEquals(0, bytes.readableBytes());
+        return read;
+    }
+}
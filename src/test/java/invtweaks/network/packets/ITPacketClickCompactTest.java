@@ -0,0 +1,66 @@
+package invtweaks.network.packets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class ITPacketClickCompactTest {
+
+    @Test
+    public void packsDataAndActionInOneByte() {
+        ByteBuf bytes = write(new ITPacketClickCompact(5, 1, 0, 3));
+        assertEquals(3, bytes.readableBytes());
+        assertRoundTrip(bytes, 5, 1, 0, 3);
+    }
+
+    @Test
+    public void packsLargestValues() {
+        ByteBuf bytes = write(new ITPacketClickCompact(127, 0x0E, 0x0E, 1));
+        assertEquals(3, bytes.readableBytes());
+        assertRoundTrip(bytes, 127, 0x0E, 0x0E, 1);
+    }
+
+    @Test
+    public void escapesValuesThatDontFit() {
+        // 0x0F would make 0xFF, which is the escape byte itself
+        ByteBuf bytes = write(new ITPacketClickCompact(10, 0x0F, 0x0F, 1));
+        assertEquals(0xFF, bytes.getUnsignedByte(1));
+        assertRoundTrip(bytes, 10, 0x0F, 0x0F, 1);
+
+        assertRoundTrip(write(new ITPacketClickCompact(10, 300, 4, 1)), 10, 300, 4, 1);
+        assertRoundTrip(write(new ITPacketClickCompact(10, 0, 16, 1)), 10, 0, 16, 1);
+        assertRoundTrip(write(new ITPacketClickCompact(10, -1, -1, 1)), 10, -1, -1, 1);
+    }
+
+    @Test
+    public void roundTripsClicksOutsideTheWindow() {
+        ByteBuf bytes = write(new ITPacketClickCompact(-999, 0, 0, 2));
+        assertEquals(1 + 1 + 5, bytes.readableBytes());
+        assertRoundTrip(bytes, -999, 0, 0, 2);
+    }
+
+    @Test
+    public void roundTripsLargeSlots() {
+        assertRoundTrip(write(new ITPacketClickCompact(128, 2, 1, 2)), 128, 2, 1, 2);
+        assertRoundTrip(write(new ITPacketClickCompact(70000, 2, 1, 2)), 70000, 2, 1, 2);
+    }
+
+    private static ByteBuf write(ITPacketClickCompact packet) {
+        ByteBuf bytes = Unpooled.buffer();
+        packet.writeBytes(bytes);
+        return bytes;
+    }
+
+    private static void assertRoundTrip(ByteBuf bytes, int slot, int data, int action, int window) {
+        ITPacketClickCompact packet = new ITPacketClickCompact();
+        packet.readBytes(bytes);
+        assertEquals(slot, packet.slot);
+        assertEquals(data, packet.data);
+        assertEquals(action, packet.action);
+        assertEquals(window, packet.window);
+        assertEquals(0, bytes.readableBytes());
+    }
+}